@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.Dimension;
+import java.util.List;
+import java.util.Random;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Shared functions for the benchmarks.
+ */
+final class Fixtures {
+
+    /** Size of the display the functions are created for. */
+    static final Dimension SIZE = new Dimension(1000, 1000);
+
+    private Fixtures() { }
+
+    /**
+     * Returns a snapshot of transforms that each rotate by a random angle and
+     * contract by a random scale between 0.3 and 0.6, placed at random.
+     */
+    static Snapshot transforms(int transforms, Random random) {
+        List<Transform> functions = Lists.newArrayList();
+        for (int i = 0; i < transforms; i++) {
+            Transform transform = Transform.create(i + 1, i, SIZE);
+            double angle = random.nextDouble() * 2d * Math.PI, scale = 0.3d + random.nextDouble() * 0.3d;
+            transform.setMatrix(new double[] {
+                scale * Math.cos(angle), scale * Math.sin(angle),
+                -scale * Math.sin(angle), scale * Math.cos(angle),
+                random.nextDouble() * SIZE.width, random.nextDouble() * SIZE.height
+            });
+            functions.add(transform);
+        }
+        return Snapshot.of(functions);
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import iterator.model.functions.CoordinateTransform;
+
+/**
+ * Compares the chaos game {@link Kernel} in single and double precision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    public static final int POINTS = 1024;
+
+    @Param({ "3", "8" })
+    public int transforms;
+
+    @Param({ "1", "2", "3" })
+    public int power;
+
+    @Param({ "false", "true" })
+    public boolean single;
+
+    private Kernel kernel;
+    private Random random;
+
+    @Setup
+    public void setup() {
+        random = new Random(0L);
+        Composition table = Composition.of(Fixtures.transforms(transforms, random), power);
+        kernel = Kernel.of(table, CoordinateTransform.Type.IDENTITY.create(Fixtures.SIZE), false, single);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void iterate(Blackhole blackhole) {
+        Point2D point = new Point2D.Double(500d, 500d);
+        for (int i = 0; i < POINTS; i++) {
+            int c = kernel.choose(random);
+            point = kernel.apply(c, point);
+        }
+        blackhole.consume(point);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import iterator.model.functions.CoordinateTransform;
+import iterator.util.Config.Sampling;
+
+/**
+ * Measures the iterations the chaos game needs before its density
+ * histogram is within a threshold of a reference, for each {@link Sampling}.
+ * <p>
+ * This counts iterations rather than timing them, so it is a plain
+ * program rather than a JMH benchmark, run with:
+ * {@code mvn -P benchmark compile exec:java -Dexec.mainClass=iterator.model.SamplingBenchmark}
+ */
+public class SamplingBenchmark {
+
+    /** Histogram cells along each side of the bounding disc. */
+    public static final int GRID = 128;
+
+    /** Iterations for the reference histogram, and the most for each trial. */
+    public static final long REFERENCE = 50_000_000L, LIMIT = 20_000_000L;
+
+    /** Iterations discarded while the walker converges. */
+    public static final int BURN_IN = 100;
+
+    /** Total variation distance from the reference that counts as converged. */
+    public static final double THRESHOLD = 0.05d;
+
+    /** Trials with different seeds for each case. */
+    public static final int TRIALS = 5;
+
+    private final Kernel kernel, strata;
+    private final Point2D centre;
+    private final double radius;
+
+    public SamplingBenchmark(int transforms, int power, long seed) {
+        Snapshot snapshot = Fixtures.transforms(transforms, new Random(seed));
+        Function identity = CoordinateTransform.Type.IDENTITY.create(Fixtures.SIZE);
+        kernel = Kernel.of(Composition.of(snapshot, power), identity, false, false);
+        strata = Kernel.of(Composition.of(snapshot, Prefixes.MAX_LENGTH), identity, false, false);
+        centre = snapshot.getCentre();
+        radius = snapshot.getRadius();
+    }
+
+    /**
+     * Runs the chaos game, adding points to a histogram, and returns the
+     * iterations taken to come within the threshold of a reference, checking
+     * at intervals growing by a quarter, or the whole run when there is no
+     * reference.
+     */
+    public long run(Sampling sampling, long seed, long iterations, double[] histogram, double[] reference) {
+        Random random = new Random(seed);
+        Point2D point = new Point2D.Double(centre.getX(), centre.getY());
+        double sequence = random.nextDouble();
+        long points = 0L, check = 1024L;
+        for (long i = 0L; i < iterations + BURN_IN; i++) {
+            Point2D source = point;
+            point = kernel.apply(kernel.choose(random), source);
+            if (i < BURN_IN) continue;
+
+            Point2D image = point;
+            if (sampling == Sampling.QUASI_RANDOM) {
+                sequence += Kernel.GOLDEN_RATIO;
+                if (sequence >= 1d) sequence -= 1d;
+                image = strata.apply(strata.choose(sequence), source);
+            }
+            int x = (int) ((image.getX() - centre.getX() + radius) / (2d * radius) * GRID);
+            int y = (int) ((image.getY() - centre.getY() + radius) / (2d * radius) * GRID);
+            if (x >= 0 && y >= 0 && x < GRID && y < GRID) {
+                histogram[y * GRID + x]++;
+            }
+
+            if (reference != null && ++points == check) {
+                if (distance(histogram, reference) < THRESHOLD) return points;
+                check += check / 4L;
+            }
+        }
+        return iterations;
+    }
+
+    /** Total variation distance between two histograms, after normalising them. */
+    public static double distance(double[] a, double[] b) {
+        double ta = 0d, tb = 0d;
+        for (int i = 0; i < a.length; i++) {
+            ta += a[i];
+            tb += b[i];
+        }
+        double sum = 0d;
+        for (int i = 0; i < a.length; i++) {
+            sum += Math.abs(a[i] / ta - b[i] / tb);
+        }
+        return sum / 2d;
+    }
+
+    public static void main(String...argv) {
+        for (int transforms : new int[] { 3, 8 }) {
+            for (int power : new int[] { 1, 2 }) {
+                SamplingBenchmark benchmark = new SamplingBenchmark(transforms, power, 0L);
+                double[] reference = new double[GRID * GRID];
+                benchmark.run(Sampling.RANDOM, -1L, REFERENCE, reference, null);
+                for (Sampling sampling : Sampling.values()) {
+                    long total = 0L;
+                    for (int t = 0; t < TRIALS; t++) {
+                        total += benchmark.run(sampling, t, LIMIT, new double[GRID * GRID], reference);
+                    }
+                    System.out.printf("transforms %d power %d %s: %,d iterations%n", transforms, power, sampling, total / TRIALS);
+                }
+            }
+        }
+    }
+
+}
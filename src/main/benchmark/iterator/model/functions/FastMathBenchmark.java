@@ -0,0 +1,81 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model.functions;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import iterator.model.functions.CoordinateTransform.Type;
+
+/**
+ * Compares the variations using {@link Math} and {@link FastMath}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastMathBenchmark {
+
+    public static final int POINTS = 1024;
+
+    @Param({ "SWIRL", "POLAR", "HYPERBOLIC", "EXPONENTIAL", "CYLINDER", "TANGENT" })
+    public Type type;
+
+    @Param({ "false", "true" })
+    public boolean fast;
+
+    private CoordinateTransform function;
+    private Point2D[] points;
+
+    @Setup
+    public void setup() {
+        Dimension size = new Dimension(1000, 1000);
+        function = type.create(size, 0, fast);
+
+        Random random = new Random(0L);
+        points = new Point2D[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = new Point2D.Double(random.nextDouble() * size.width, random.nextDouble() * size.height);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void apply(Blackhole blackhole) {
+        for (Point2D point : points) {
+            blackhole.consume(function.apply(point));
+        }
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.view;
+
+import static iterator.Utils.RGB24;
+import static iterator.Utils.alpha;
+import static iterator.Utils.getPixel;
+import static iterator.Utils.octet;
+import static iterator.Utils.unity;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.Iterables;
+import com.google.common.math.LongMath;
+
+import iterator.util.Config;
+import iterator.util.Config.Render;
+
+/**
+ * Compares the {@link Iterator} plotters, chosen once for each chunk of
+ * iterations, with the previous per-point switch over render and display
+ * modes, which is kept here as the baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlotterBenchmark {
+
+    public static final int POINTS = 1024;
+
+    public static final int FUNCTIONS = 4;
+
+    @Param({ "STANDARD", "TOP", "MEASURE", "DENSITY", "LOG_DENSITY_BLUR", "LOG_DENSITY_POWER" })
+    public Render render;
+
+    @Param({ "GRAY", "COLOUR", "PALETTE", "IFS_COLOUR" })
+    public Config.Mode mode;
+
+    private Dimension size;
+    private Config config;
+    private Iterator iterator;
+    private Baseline baseline;
+    private BufferedImage image;
+    private Graphics2D g;
+    private int[] xs, ys, js;
+    private Point2D[] olds;
+
+    @Setup
+    public void setup() {
+        size = new Dimension(1000, 1000);
+        config = Config.loadProperties(null);
+        config.setRender(render);
+        config.setMode(mode);
+        config.loadColours();
+        iterator = new Iterator((t, m) -> { }, config, size);
+        iterator.reset(size);
+        baseline = new Baseline(config, size);
+        image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        g = image.createGraphics();
+
+        Random random = new Random(0L);
+        xs = new int[POINTS];
+        ys = new int[POINTS];
+        js = new int[POINTS];
+        olds = new Point2D[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextInt(size.width);
+            ys[i] = random.nextInt(size.height);
+            js[i] = random.nextInt(FUNCTIONS);
+            olds[i] = new Point2D.Double(random.nextDouble() * size.width, random.nextDouble() * size.height);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void strategy() {
+        Iterator.Plotter plotter = iterator.plotter(g, 1, render, mode, FUNCTIONS);
+        for (int i = 0; i < POINTS; i++) {
+            plotter.plot(xs[i], ys[i], js[i], olds[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POINTS)
+    public void baseline() {
+        Rectangle rect = new Rectangle(0, 0, 1, 1);
+        float[] hsb = new float[3];
+        for (int i = 0; i < POINTS; i++) {
+            baseline.plot(g, rect, hsb, xs[i], ys[i], js[i], FUNCTIONS, olds[i], render, mode);
+        }
+    }
+
+    /** The per-point plotting switch that the strategies replaced, with its own buffers. */
+    private static final class Baseline {
+
+        private final Config config;
+        private final Dimension size;
+        private final int kernel;
+        private final float vibrancy, vibrancyLimit;
+        private final int[] top;
+        private final long[] density, blur;
+        private final double[] colour;
+        private long max = 1L;
+
+        private Baseline(Config config, Dimension size) {
+            this.config = config;
+            this.size = size;
+            kernel = config.getBlurKernel();
+            vibrancy = config.getVibrancy();
+            vibrancyLimit = config.getVibrancyLimit();
+            top = new int[size.width * size.height];
+            density = new long[size.width * size.height];
+            colour = new double[size.width * size.height];
+            blur = new long[(size.width / kernel + 1) * (size.height / kernel + 1)];
+        }
+
+        private void plot(Graphics2D g, Rectangle rect, float[] hsb, int x, int y, int j, int n, Point2D old, Render render, Config.Mode mode) {
+            int p = x + y * size.width;
+
+            if (render == Render.TOP) {
+                if (j > top[p]) top[p] = j;
+            }
+
+            if (render.isDensity()) {
+                try {
+                    density[p] = LongMath.checkedAdd(density[p], 1L);
+                    switch (render) {
+                        case LOG_DENSITY_BLUR:
+                        case LOG_DENSITY_BLUR_INVERSE:
+                            density[p] = LongMath.checkedAdd(density[p], kernel - 1);
+                            int q = (x / kernel) + (y / kernel) * (size.width / kernel);
+                            blur[q] = LongMath.checkedAdd(blur[q], 1);
+                            break;
+                        case LOG_DENSITY_POWER:
+                        case DENSITY_POWER:
+                        case LOG_DENSITY_POWER_INVERSE:
+                            density[p] = (long) Math.min(((double) density[p]) * 1.01d, Long.MAX_VALUE);
+                            break;
+                        default:
+                            break;
+                    }
+                    max = Math.max(max, density[p]);
+                } catch (ArithmeticException ae) { /* ignored */ }
+            }
+
+            Color color = Color.BLACK;
+            if (mode.isColour()) {
+                if (mode.isIFSColour()) {
+                    color = Color.getHSBColor((float) (old.getX() / size.getWidth()), (float) (old.getY() / size.getHeight()), vibrancyLimit);
+                } else if (mode == Config.Mode.GRADIENT) {
+                    color = getPixel(config.getGradientImage(), size, old.getX(), old.getY());
+                } else if (mode.isPalette()) {
+                    if (mode.isStealing()) {
+                        color = getPixel(config.getSourceImage(), size, old.getX(), old.getY());
+                    } else {
+                        if (render == Render.TOP) {
+                            color = Iterables.get(config.getColours(), top[p] % config.getColours().size());
+                        } else {
+                            color = Iterables.get(config.getColours(), j % config.getColours().size());
+                        }
+                    }
+                } else {
+                    if (render == Render.TOP) {
+                        color = Color.getHSBColor((float) top[p] / (float) n, vibrancyLimit, vibrancyLimit);
+                    } else {
+                        color = Color.getHSBColor((float) j / (float) n, vibrancyLimit, vibrancyLimit);
+                    }
+                }
+                if (render.isDensity()) {
+                    colour[p] = (double) (color.getRGB() & RGB24) / (double) RGB24;
+                }
+            }
+
+            if (render == Render.IFS) {
+                g.setPaint(alpha(color, 255));
+            } else {
+                if (render == Render.MEASURE) {
+                    if (top[p] != 0) {
+                        color = new Color(top[p]);
+                        Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
+                        if (hsb[2] < 0.5f) {
+                            color = color.brighter();
+                        }
+                    }
+                    top[p] = color.getRGB();
+                }
+                g.setPaint(alpha(color, 128));
+            }
+
+            if (!render.isDensity()) {
+                Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
+                g.setPaint(alpha(Color.HSBtoRGB(hsb[0],
+                        unity().apply(hsb[1] * vibrancy).floatValue() * vibrancyLimit,
+                        unity().apply(Math.pow(hsb[2], config.getGamma()) * vibrancy).floatValue() * vibrancyLimit),
+                        octet().apply((int) (color.getAlpha() * vibrancy))));
+                rect.setLocation(x, y);
+                g.fill(rect);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+@ECHO OFF
+REM
+REM Copyright 2012-2020 by Andrew Kennedy.
+REM http://www.apache.org/licenses/LICENSE-2.0
+REM
+REM Iterated Function System Converter
+REM
+REM andrew.international+iterator@gmail.com
+REM
+
+REM
+REM Setup
+REM
+SET BIN=%~p0%
+SET LIB=%BIN:bin=lib%
+IF NOT DEFINED JAVA_MEM SET JAVA_MEM=-Xms1g -Xmx1g
+SET JAVA_OPTS=%JAVA_OPTS% %JAVA_MEM%
+
+REM
+REM Exexcute Java
+REM
+java -cp ".;%LIB%\*" %JAVA_OPTS% iterator.Converter %* 2>> converter.log
@@ -412,7 +412,7 @@ public class Animator implements BiConsumer<Throwable, String> {
                 iterator.reset(size);
                 iterator.setTransforms(ifs);
                 iterator.start();
-                while (iterator.getCount() <= limit) {
+                while (iterator.isRunning() && iterator.getCount() <= limit) {
                     Utils.sleep(100, TimeUnit.MILLISECONDS);
                     String countText = String.format("%,dK", Math.min(iterator.getCount(), limit)).replaceAll("[^0-9K+]", " ");
                     out.pause(countText);
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator;
+
+import static iterator.Utils.NEWLINE;
+import static iterator.Utils.version;
+import static iterator.util.Config.OUTPUT_OPTION;
+import static iterator.util.Config.OUTPUT_OPTION_LONG;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+import iterator.model.Binary;
+import iterator.model.IFS;
+import iterator.util.Output;
+
+/**
+ * IFS Converter main class.
+ * <p>
+ * Converts IFS data files between XML and the compact {@link Binary} format.
+ * Each input file is written in the other format, either next to the input
+ * or in the output directory, or to the output file for a single input.
+ */
+public class Converter {
+
+    public static final List<String> BANNER = Arrays.asList(
+            "   ___ _____ ____     ____                          _",
+            "  |_ _|  ___/ ___|   / ___|___  _ ____   _____ _ __| |_ ___ _ __",
+            "   | || |_  \\___ \\  | |   / _ \\| '_ \\ \\ / / _ \\ '__| __/ _ \\ '__|",
+            "   | ||  _|  ___) | | |__| (_) | | | \\ V /  __/ |  | ||  __/ |",
+            "  |___|_|   |____/   \\____\\___/|_| |_|\\_/ \\___|_|   \\__\\___|_|",
+            "",
+            "    Iterated Function System Converter %s",
+            "",
+            "    Copyright 2012-2017 by Andrew Donald Kennedy",
+            "    Licensed under the Apache Software License, Version 2.0",
+            "    Documentation at https://grkvlt.github.io/iterator/",
+            "");
+
+    public static final String XML_EXTENSION = "xml";
+
+    private Output out = new Output();
+    private Path output;
+    private List<Path> inputs = Lists.newArrayList();
+
+    public Converter(String...argv) {
+        // Parse arguments
+        if (argv.length < 1) {
+            out.error("Must have at least one argument");
+        }
+        for (int i = 0; i < argv.length; i++) {
+            // Argument is a program option
+            if (argv[i].charAt(0) == '-') {
+                if (argv[i].equalsIgnoreCase(OUTPUT_OPTION) ||
+                        argv[i].equalsIgnoreCase(OUTPUT_OPTION_LONG)) {
+                    if (argv.length > i + 1) {
+                        output = Paths.get(argv[++i]);
+                    } else {
+                        out.error("Output file argument not provided");
+                    }
+                } else {
+                    out.error("Cannot parse option: %s", argv[i]);
+                }
+            } else {
+                // Argument is an IFS file
+                Path file = Paths.get(argv[i]);
+                if (Files.isReadable(file)) {
+                    inputs.add(file);
+                } else {
+                    out.error("Cannot read IFS data file: %s", file.getFileName());
+                }
+            }
+        }
+
+        // Check inputs and output
+        if (inputs.isEmpty()) {
+            out.error("No IFS data files to convert");
+        }
+        if (output != null && inputs.size() > 1 && !Files.isDirectory(output)) {
+            out.error("Output must be a directory when converting multiple files: %s", output.getFileName());
+        }
+    }
+
+    public void start() {
+        out.timestamp("Started");
+
+        for (Path input : inputs) {
+            Path target = target(input);
+            try {
+                IFS ifs = IFS.load(input.toFile());
+                IFS.save(ifs, target.toFile());
+                out.stack("Converted %s to %s", input.getFileName(), target.getFileName());
+            } catch (RuntimeException re) {
+                out.error(re, "Failed to convert %s", input.getFileName());
+            }
+        }
+
+        out.timestamp("Finished");
+    }
+
+    /** The converted file for an input, with the extension of the other format. */
+    private Path target(Path input) {
+        String name = com.google.common.io.Files.getNameWithoutExtension(input.getFileName().toString());
+        String extension = IFS.isBinary(input.toFile()) ? XML_EXTENSION : Binary.EXTENSION;
+        Path converted = Paths.get(name + "." + extension);
+
+        if (output == null) {
+            return input.resolveSibling(converted);
+        } else if (Files.isDirectory(output)) {
+            return output.resolve(converted);
+        } else {
+            return output;
+        }
+    }
+
+    /**
+     * Converter.
+     */
+    public static void main(final String...argv) {
+        String banner = Joiner.on(NEWLINE).join(BANNER);
+        System.out.printf(banner, version());
+        System.out.println();
+
+        Converter converter = new Converter(argv);
+        converter.start();
+    }
+
+}
@@ -113,10 +113,13 @@ import com.google.common.io.Resources;
 
 import iterator.dialog.About;
 import iterator.dialog.Preferences;
+import iterator.model.Binary;
 import iterator.model.IFS;
+import iterator.util.Change;
 import iterator.util.Config;
 import iterator.util.Dialog;
 import iterator.util.Messages;
+import iterator.util.Notifier;
 import iterator.util.Output;
 import iterator.util.Platform;
 import iterator.util.Subscriber;
@@ -167,6 +170,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
             "      space: Pause and resume iteration",
             "      +/-: Zoom in or out by a factor of two",
             "      =: Centre and reset zoom to original",
+            "      left/right: Go back or forward through previous zooms",
             "      i: Toggle information text display",
             "      o: Toggle transform overlay display",
             "      g: Toggle grid display",
@@ -196,6 +200,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
     private File cwd;
     private Messages messages;
     private EventBus bus;
+    private Notifier notifier;
 
     private Editor editor;
     private Viewer viewer;
@@ -214,6 +219,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
         // Setup event bus
         bus = new EventBus(this);
         bus.register(this);
+        notifier = new Notifier(bus);
 
         // Load i18n text
         messages = new Messages(out);
@@ -254,7 +260,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
                         postponed = () -> {
                             IFS loaded = load(file);
                             loaded.setSize(size);
-                            bus.post(loaded);
+                            notifier.post(loaded);
                         };
                     } else {
                         out.error("Cannot load XML data file: %s", argv[i]);
@@ -325,13 +331,13 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
         JMenuItem newIfs = menuItem(messages.getText(MENU_FILE_NEW), e -> {
             IFS untitled = new IFS();
             show(EDITOR);
-            bus.post(untitled);
+            notifier.post(untitled);
             getEditor().resetImage();
         });
         newIfs.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_N, Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
         file.add(newIfs);
         JMenuItem open = menuItem(messages.getText(MENU_FILE_OPEN), e -> {
-            FilenameFilter filter = (d, n) -> n.endsWith(".xml");
+            FilenameFilter filter = (d, n) -> n.endsWith(".xml") || n.endsWith("." + Binary.EXTENSION);
             FileDialog dialog = new FileDialog(this, messages.getText(DIALOG_LOAD_IFS), FileDialog.LOAD);
             dialog.setFilenameFilter(filter);
             dialog.setDirectory(cwd.getAbsolutePath());
@@ -341,7 +347,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
                 IFS loaded = load(new File(dialog.getDirectory(), result));
                 loaded.setSize(size);
                 show(EDITOR);
-                bus.post(loaded);
+                notifier.post(loaded);
             }
         });
         open.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_O, Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
@@ -515,8 +521,9 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
             }
         }
 
+        // Deliver the initial IFS immediately, before the window is shown
         IFS untitled = new IFS();
-        bus.post(untitled);
+        bus.post(Change.of(untitled));
 
         // Check for post-startup task
         if (postponed != null) {
@@ -608,7 +615,6 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
 
     /** @see Subscriber#updated(IFS) */
     @Override
-    @Subscribe
     public void updated(IFS updated) {
         ifs = updated;
         String name = Optional.ofNullable(ifs.getName()).orElse(IFS.UNTITLED);
@@ -684,6 +690,8 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
 
     public EventBus getEventBus() { return bus; }
 
+    public Notifier getNotifier() { return notifier; }
+
     public Messages getMessages() { return messages; }
 
     /**
@@ -741,7 +749,7 @@ public class Explorer extends JFrame implements KeyListener, SubscriberException
                     config.setSeed(seed + 1);
                 }
                 config.loadColours();
-                bus.post(ifs);
+                notifier.post(ifs);
                 break;
             case KeyEvent.VK_SLASH:
                 if (!e.isShiftDown()) break;
@@ -19,6 +19,8 @@ import static iterator.Utils.NEWLINE;
 import static iterator.Utils.version;
 import static iterator.util.Config.CONFIG_OPTION;
 import static iterator.util.Config.CONFIG_OPTION_LONG;
+import static iterator.util.Config.FIT_OPTION;
+import static iterator.util.Config.FIT_OPTION_LONG;
 import static iterator.util.Config.MIN_WINDOW_SIZE;
 import static iterator.util.Config.OUTPUT_OPTION;
 import static iterator.util.Config.OUTPUT_OPTION_LONG;
@@ -67,13 +69,14 @@ public class Renderer implements BiConsumer<Throwable, String> {
     private String paletteFile;
     private IFS ifs;
     private Dimension size;
+    private boolean fit;
 
     public Renderer(String...argv) {
         // Parse arguments
         if (argv.length < 1) {
             out.error("Must have at least one argument");
         }
-        for (int i = 0; i < argv.length - 2; i++) {
+        for (int i = 0; i < argv.length - 1; i++) {
             // Argument is a program option
             if (argv[i].charAt(0) == '-') {
                 if (argv[i].equalsIgnoreCase(PALETTE_OPTION) ||
@@ -100,6 +103,9 @@ public class Renderer implements BiConsumer<Throwable, String> {
                     } else {
                         out.error("Output picture file argument not provided");
                     }
+                } else if (argv[i].equalsIgnoreCase(FIT_OPTION) ||
+                        argv[i].equalsIgnoreCase(FIT_OPTION_LONG)) {
+                    fit = true;
                 } else {
                     out.error("Cannot parse option: %s", argv[i]);
                 }
@@ -148,6 +154,16 @@ public class Renderer implements BiConsumer<Throwable, String> {
         iterator.reset(size);
         iterator.setTransforms(ifs);
 
+        // Fit the display to the attractor
+        if (fit) {
+            iterator.getBounds().ifPresent(bounds -> {
+                config.setDisplayScale(iterator.getFitScale(bounds));
+                config.setDisplayCentreX(bounds.getCenterX() / size.getWidth());
+                config.setDisplayCentreY(bounds.getCenterY() / size.getHeight());
+            });
+            iterator.reset(size);
+        }
+
         // Print details
         String infoText = iterator.getInfo();
         out.print(infoText);
@@ -156,13 +172,14 @@ public class Renderer implements BiConsumer<Throwable, String> {
 
         // Render IFS
         iterator.start();
-        while (iterator.getCount() <= limit) {
+        while (iterator.isRunning() && iterator.getCount() <= limit) {
             Utils.sleep(100, TimeUnit.MILLISECONDS);
             String countText = String.format("%,dK", Math.min(iterator.getCount(), limit)).replaceAll("[^0-9K+]", " ");
             out.pause(countText);
         }
         out.println();
         iterator.stop();
+        out.print("%.1f%% outside viewport", iterator.getOutside() * 100d);
 
         // Save PNG image
         out.stack("Saving %s", picture.getFileName());
@@ -40,15 +40,15 @@ import javax.swing.JTextPane;
 import javax.swing.text.html.HTMLEditorKit;
 import javax.swing.text.html.StyleSheet;
 
-import com.google.common.eventbus.EventBus;
-
 import iterator.Explorer;
 import iterator.Utils;
 import iterator.model.IFS;
 import iterator.model.Transform;
+import iterator.util.Change.Field;
 import iterator.util.Dialog;
 import iterator.util.Formatter;
 import iterator.util.Messages;
+import iterator.util.Notifier;
 import iterator.util.Property;
 import iterator.view.Details;
 
@@ -59,7 +59,7 @@ public class Matrix extends JDialog implements Dialog<Matrix>, KeyListener, Comp
 
     private final Property<Double> c0, c1, c2, c3, c4, c5;
     private final Transform transform;
-    private final EventBus bus;
+    private final Notifier notifier;
 
     private JPanel matrix;
     private JButton update, cancel;
@@ -73,7 +73,7 @@ public class Matrix extends JDialog implements Dialog<Matrix>, KeyListener, Comp
 
         this.transform = transform;
         Messages messages = controller.getMessages();
-        this.bus = controller.getEventBus();
+        this.notifier = controller.getNotifier();
 
         addKeyListener(this);
         addComponentListener(this);
@@ -147,7 +147,7 @@ public class Matrix extends JDialog implements Dialog<Matrix>, KeyListener, Comp
             m[1] = c3.get(); m[3] = c4.get(); m[5] = c5.get();
 
             transform.setMatrix(m);
-            bus.post(ifs);
+            notifier.post(ifs, transform, Field.GEOMETRY);
             setVisible(false);
         });
         update = new JButton(success);
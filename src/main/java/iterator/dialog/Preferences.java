@@ -23,6 +23,7 @@ import static iterator.util.Messages.DIALOG_PREFERENCES_BLUR;
 import static iterator.util.Messages.DIALOG_PREFERENCES_BUTTON_CANCEL;
 import static iterator.util.Messages.DIALOG_PREFERENCES_BUTTON_UPDATE;
 import static iterator.util.Messages.DIALOG_PREFERENCES_DEBUG;
+import static iterator.util.Messages.DIALOG_PREFERENCES_ENGINE;
 import static iterator.util.Messages.DIALOG_PREFERENCES_GAMMA;
 import static iterator.util.Messages.DIALOG_PREFERENCES_GRADIENT_COLOUR;
 import static iterator.util.Messages.DIALOG_PREFERENCES_ITERATIONS_LIMIT;
@@ -45,6 +46,7 @@ import com.google.common.collect.Range;
 import iterator.Explorer;
 import iterator.model.functions.CoordinateTransform;
 import iterator.util.AbstractPropertyDialog;
+import iterator.util.Config.Engine;
 import iterator.util.Config.Mode;
 import iterator.util.Config.Render;
 import iterator.util.Formatter;
@@ -59,6 +61,7 @@ public class Preferences extends AbstractPropertyDialog<Preferences> {
 
     private final Property<Mode> mode;
     private final Property<Render> render;
+    private final Property<Engine> engine;
     private final Property<CoordinateTransform.Type> transform;
     private final Property<Boolean> reverse;
     private final Property<String> paletteFile;
@@ -82,6 +85,7 @@ public class Preferences extends AbstractPropertyDialog<Preferences> {
 
         mode = addDropDown(messages.getText(DIALOG_PREFERENCES_MODE), Mode.values());
         render = addDropDown(messages.getText(DIALOG_PREFERENCES_RENDER), Render.values());
+        engine = addDropDown(messages.getText(DIALOG_PREFERENCES_ENGINE), Engine.values());
         transform = addDropDown(messages.getText(DIALOG_PREFERENCES_TRANSFORM), CoordinateTransform.Type.ordered());
         reverse = addCheckBox(messages.getText(DIALOG_PREFERENCES_REVERSE));
         gradientColour = addGradientPicker(messages.getText(DIALOG_PREFERENCES_GRADIENT_COLOUR));
@@ -108,6 +112,7 @@ public class Preferences extends AbstractPropertyDialog<Preferences> {
 
         mode.set(config.getMode());
         render.set(config.getRender());
+        engine.set(config.getEngine());
         transform.set(config.getCoordinateTransformType());
         reverse.set(config.isReverseOrder());
         gradientColour.set(Pair.of(config.getGradientStart(), config.getGradientEnd()));
@@ -128,6 +133,7 @@ public class Preferences extends AbstractPropertyDialog<Preferences> {
     public void onSuccess() {
         config.setMode(mode.get());
         config.setRender(render.get());
+        config.setEngine(engine.get());
         config.setCoordinateTransformType(transform.get());
         config.setReverseOrder(reverse.get());
         config.setGradientStart(gradientColour.get().getLeft());
@@ -37,6 +37,7 @@ import iterator.model.IFS;
 import iterator.model.Reflection;
 import iterator.model.Transform;
 import iterator.util.AbstractPropertyDialog;
+import iterator.util.Change.Field;
 import iterator.util.Formatter;
 import iterator.util.Property;
 import iterator.util.Property.OptionalProperty;
@@ -128,14 +129,14 @@ public class Properties extends AbstractPropertyDialog<Properties> {
             transform.shx = shx.get();
             transform.shy = shy.get();
             transform.weight = weight.getNullable();
+            controller.getNotifier().post(ifs, transform, Field.GEOMETRY, Field.WEIGHT);
         }
         if (reflection != null) {
             reflection.x = x.get();
             reflection.y = y.get();
             reflection.r = Math.toRadians(r.get());
+            controller.getNotifier().post(ifs, reflection, Field.GEOMETRY);
         }
-
-        bus.post(ifs);
     }
 
 }
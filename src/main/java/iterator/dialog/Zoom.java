@@ -70,13 +70,7 @@ public class Zoom extends AbstractPropertyDialog<Zoom> {
 
     @Override
     public void onSuccess() {
-        config.setDisplayCentreX(x.get());
-        config.setDisplayCentreY(y.get());
-        config.setDisplayScale(scale.get());
-
-        controller.getViewer().rescale();
-        controller.getViewer().reset();
-        controller.getViewer().start();
+        controller.getViewer().zoom(scale.get(), x.get(), y.get());
     }
 
     @Override
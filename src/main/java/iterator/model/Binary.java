@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.Dimension;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compact binary IFS format.
+ * <p>
+ * The stream starts with a magic number and format version, followed by the
+ * optional name, the transforms and the reflections. Matrix transforms store
+ * their six coefficients directly, other transforms store their position,
+ * size, rotation and shear. Several IFS can be written to the same stream,
+ * and read back in turn.
+ */
+public final class Binary {
+
+    /** File extension for binary IFS data. */
+    public static final String EXTENSION = "ifs";
+
+    /** Magic number, the characters {@code IFSB}. */
+    public static final int MAGIC = 0x49465342;
+
+    /** Current format version. */
+    public static final int VERSION = 1;
+
+    private static final int MATRIX = 1;
+    private static final int WEIGHT = 2;
+
+    public static void write(IFS ifs, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        out.writeBoolean(ifs.getName() != null);
+        if (ifs.getName() != null) {
+            out.writeUTF(ifs.getName());
+        }
+
+        out.writeInt(ifs.getTransforms().size());
+        double[] matrix = new double[6];
+        for (Transform t : ifs.getTransforms()) {
+            out.writeInt(t.getId());
+            out.writeInt(t.getZIndex());
+            write(out, t.getSize());
+            int flags = (t.isMatrix() ? MATRIX : 0) | (t.weight != null ? WEIGHT : 0);
+            out.writeByte(flags);
+            if (t.isMatrix()) {
+                t.getTransform().getMatrix(matrix);
+                for (double value : matrix) {
+                    out.writeDouble(value);
+                }
+            } else {
+                out.writeInt(t.x);
+                out.writeInt(t.y);
+                out.writeDouble(t.w);
+                out.writeDouble(t.h);
+                out.writeDouble(t.r);
+                out.writeDouble(t.shx);
+                out.writeDouble(t.shy);
+            }
+            if (t.weight != null) {
+                out.writeDouble(t.weight);
+            }
+        }
+
+        out.writeInt(ifs.getReflections().size());
+        for (Reflection r : ifs.getReflections()) {
+            out.writeInt(r.getId());
+            write(out, r.getSize());
+            out.writeInt(r.x);
+            out.writeInt(r.y);
+            out.writeDouble(r.r);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Reads the next IFS from a stream.
+     *
+     * @return the IFS, or {@code null} at the end of the stream
+     * @throws IOException if the data is not a supported binary IFS
+     */
+    public static IFS read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException eofe) {
+            return null;
+        }
+        if (magic != MAGIC) {
+            throw new IOException(String.format("Not a binary IFS file: magic %08x", magic));
+        }
+        int version = in.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException(String.format("Unsupported binary IFS version: %d", version));
+        }
+
+        IFS ifs = new IFS();
+        if (in.readBoolean()) {
+            ifs.setName(in.readUTF());
+        }
+
+        int transforms = in.readInt();
+        for (int i = 0; i < transforms; i++) {
+            int id = in.readInt();
+            int zIndex = in.readInt();
+            Transform t = Transform.create(id, zIndex, read(in));
+            int flags = in.readUnsignedByte();
+            if ((flags & MATRIX) != 0) {
+                double[] matrix = new double[6];
+                for (int j = 0; j < matrix.length; j++) {
+                    matrix[j] = in.readDouble();
+                }
+                t.setMatrix(matrix);
+            } else {
+                t.x = in.readInt();
+                t.y = in.readInt();
+                t.w = in.readDouble();
+                t.h = in.readDouble();
+                t.r = in.readDouble();
+                t.shx = in.readDouble();
+                t.shy = in.readDouble();
+            }
+            if ((flags & WEIGHT) != 0) {
+                t.weight = in.readDouble();
+            }
+            ifs.getTransforms().add(t);
+        }
+
+        int reflections = in.readInt();
+        for (int i = 0; i < reflections; i++) {
+            int id = in.readInt();
+            Reflection r = Reflection.create(read(in));
+            r.setId(id);
+            r.x = in.readInt();
+            r.y = in.readInt();
+            r.r = in.readDouble();
+            ifs.getReflections().add(r);
+        }
+
+        return ifs;
+    }
+
+    private static void write(DataOutputStream out, Dimension size) throws IOException {
+        out.writeInt(size.width);
+        out.writeInt(size.height);
+    }
+
+    private static Dimension read(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        return new Dimension(width, height);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.math.IntMath;
+
+/**
+ * Table of the compositions of pairs or triples of functions.
+ * <p>
+ * The attractor of an affine IFS is also the attractor of all compositions
+ * of {@code k} of its functions, chosen with the product of their
+ * probabilities, so the chaos game can iterate the compositions instead.
+ * Each step applies a single precomposed matrix, and contracts as much as
+ * {@code k} steps of the functions, so walkers converge onto the attractor
+ * in fewer steps. A table with power one holds the functions themselves,
+ * for the {@link Kernel} to iterate. Each element of the {@link Symmetry} group
+ * chosen with a transform is included in the compositions, and reflections
+ * sampled as functions are composed like the transforms.
+ * <p>
+ * The number of compositions grows as the power of the number of
+ * functions, so the power is reduced until there are at most
+ * {@link #LIMIT} of them.
+ */
+public final class Composition {
+
+    /** Composition table with no functions. */
+    public static final Composition EMPTY = of(Snapshot.EMPTY, 1);
+
+    /** Largest number of compositions in a table. */
+    public static final int LIMIT = 4096;
+
+    private final Snapshot functions;
+    private final int requested, power;
+    private final double[] matrix, tail, probability;
+    private final int[] first;
+
+    private Composition(Snapshot functions, int requested, int power, double[] matrix, double[] tail, int[] first, double[] probability) {
+        this.functions = functions;
+        this.requested = requested;
+        this.power = power;
+        this.matrix = matrix;
+        this.tail = tail;
+        this.first = first;
+        this.probability = probability;
+    }
+
+    /**
+     * Composes the functions, with their symmetry group elements, {@code power} at a time.
+     *
+     * @return the table, with a power reduced to fit the limit
+     */
+    public static Composition of(Snapshot functions, int power) {
+        int order = functions.getSymmetry().getOrder();
+        int transforms = functions.getTransforms();
+        int m = transforms * order + functions.size() - transforms;
+
+        int k = Math.max(1, power);
+        while (k > 1 && IntMath.saturatedPow(m, k) > LIMIT) k--;
+
+        // The functions composed with each group element, and their selection probabilities
+        double[] maps = new double[m * 6];
+        double[] probability = new double[m];
+        int[] index = new int[m];
+        double[] coefficients = new double[6];
+        double total = 0d;
+        for (int j = 0; j < functions.size(); j++) {
+            total += functions.getWeight(j);
+        }
+        for (int j = 0, f = 0; j < functions.size(); j++) {
+            int elements = j < transforms ? order : 1;
+            for (int g = 0; g < elements; g++, f++) {
+                functions.getMatrix(j, g, coefficients);
+                System.arraycopy(coefficients, 0, maps, f * 6, 6);
+                probability[f] = functions.getWeight(j) / total / elements;
+                index[f] = j;
+            }
+        }
+
+        // Enumerate the compositions, with the outermost function as the most significant digit
+        int size = IntMath.pow(m, k);
+        double[] matrix = new double[size * 6];
+        double[] tail = new double[size * 6];
+        int[] first = new int[size];
+        double[] weights = new double[size];
+        for (int c = 0; c < size; c++) {
+            double[] composed = new double[] { 1d, 0d, 0d, 1d, 0d, 0d };
+            double p = 1d;
+            if (k == 1) System.arraycopy(composed, 0, tail, c * 6, 6);
+            for (int d = k - 1, rest = c; d >= 0; d--, rest /= m) {
+                int f = rest % m;
+                composed = compose(maps, f * 6, composed);
+                p *= probability[f];
+                if (d == 1) System.arraycopy(composed, 0, tail, c * 6, 6);
+                if (d == 0) first[c] = index[f];
+            }
+            System.arraycopy(composed, 0, matrix, c * 6, 6);
+            weights[c] = p;
+        }
+        return new Composition(functions, power, k, matrix, tail, first, weights);
+    }
+
+    /** Composes one of the functions with an affine matrix, which is applied first. */
+    private static double[] compose(double[] a, int i, double[] b) {
+        return new double[] {
+            a[i + 0] * b[0] + a[i + 2] * b[1],
+            a[i + 1] * b[0] + a[i + 3] * b[1],
+            a[i + 0] * b[2] + a[i + 2] * b[3],
+            a[i + 1] * b[2] + a[i + 3] * b[3],
+            a[i + 0] * b[4] + a[i + 2] * b[5] + a[i + 4],
+            a[i + 1] * b[4] + a[i + 3] * b[5] + a[i + 5]
+        };
+    }
+
+    /** Whether the table was generated for these functions and requested power. */
+    public boolean matches(Snapshot functions, int power) {
+        return this.functions == functions && this.requested == power;
+    }
+
+    /** The number of compositions. */
+    public int size() { return first.length; }
+
+    /** The number of functions in each composition. */
+    public int getPower() { return power; }
+
+    /** The probability of choosing composition {@code c}. */
+    public double getProbability(int c) { return probability[c]; }
+
+    /** The index of the outermost function of composition {@code c}, which produces the point. */
+    public int getFirst(int c) { return first[c]; }
+
+    /** The coefficients of composition {@code c}, as for {@link java.awt.geom.AffineTransform#getMatrix(double[])}. */
+    public void getMatrix(int c, double[] coefficients) {
+        System.arraycopy(matrix, c * 6, coefficients, 0, 6);
+    }
+
+    /**
+     * The coefficients of composition {@code c} without its outermost
+     * function, which gives the previous point for the colour modes, or
+     * the identity for a single function.
+     */
+    public void getTail(int c, double[] coefficients) {
+        System.arraycopy(tail, c * 6, coefficients, 0, 6);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("power", power)
+                .add("size", size())
+                .toString();
+    }
+
+}
@@ -16,16 +16,24 @@
 package iterator.model;
 
 import java.awt.Dimension;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.ListIterator;
 
 import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.annotation.XmlAccessType;
@@ -37,10 +45,14 @@ import javax.xml.bind.annotation.XmlRootElement;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ForwardingList;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
 
 /**
  * IFS Model.
@@ -53,7 +65,7 @@ import com.google.common.collect.Ordering;
  * <p>
  * The IFS and its functions are serialisable as XML using JAXB, via th
  * {@link #save(IFS, java.io.File)} and {@link #load(java.io.File)}
- * methods.
+ * methods, which also support the compact {@link Binary} format.
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "IFS")
@@ -69,38 +81,137 @@ public class IFS extends ForwardingList<Function> {
                     .compare(left, right, IDENTITY)
                     .result();
 
-    public static void save(IFS ifs, File file) {
-        try (FileWriter writer = new FileWriter(file)) {
-            JAXBContext context = JAXBContext.newInstance(IFS.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            marshaller.marshal(ifs, writer);
-        } catch (Exception e) {
+    /** The JAXB context is expensive to create, and thread-safe once created. */
+    private static final Supplier<JAXBContext> CONTEXT = Suppliers.memoize(() -> {
+        try {
+            return JAXBContext.newInstance(IFS.class);
+        } catch (JAXBException e) {
             throw new RuntimeException(e);
         }
+    });
+
+    /** Saves the IFS as XML, or in the {@link Binary} format if the file has that extension. */
+    public static void save(IFS ifs, File file) {
+        if (isBinary(file)) {
+            try (OutputStream stream = new BufferedOutputStream(new FileOutputStream(file))) {
+                Binary.write(ifs, stream);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            try (FileWriter writer = new FileWriter(file)) {
+                Marshaller marshaller = CONTEXT.get().createMarshaller();
+                marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+                marshaller.marshal(ifs, writer);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
+    /** Loads an IFS from XML, or from the {@link Binary} format if the file has that extension. */
     public static IFS load(File file) {
-        try (FileReader reader = new FileReader(file)) {
-            JAXBContext context = JAXBContext.newInstance(IFS.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            return (IFS) unmarshaller.unmarshal(reader);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        if (isBinary(file)) {
+            try (InputStream stream = new BufferedInputStream(new FileInputStream(file))) {
+                IFS ifs = Binary.read(stream);
+                if (ifs == null) {
+                    throw new EOFException("Empty binary IFS file: " + file.getName());
+                }
+                return ifs;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            try (FileReader reader = new FileReader(file)) {
+                Unmarshaller unmarshaller = CONTEXT.get().createUnmarshaller();
+                return (IFS) unmarshaller.unmarshal(reader);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
     }
 
+    public static boolean isBinary(File file) {
+        return Files.getFileExtension(file.getName()).equalsIgnoreCase(Binary.EXTENSION);
+    }
+
     @XmlAttribute(required = true)
     private String name;
     @XmlElementWrapper(name = "Transforms")
     @XmlElement(name = "Transform")
-    private List<Transform> transforms = Lists.newLinkedList();
+    private List<Transform> transforms = new Tracked<>();
     @XmlElementWrapper(name = "Reflections")
     @XmlElement(name = "Reflection")
-    private List<Reflection> reflections = Lists.newLinkedList();
+    private List<Reflection> reflections = new Tracked<>();
+
+    private transient volatile List<Function> functions;
+    private transient volatile long version;
 
     public IFS() { }
 
+    /**
+     * Array backed list that invalidates the cached function table of the
+     * IFS when it is modified.
+     * <p>
+     * Iterators and sub-lists are implemented using the methods of this
+     * list, so every modification is seen.
+     */
+    private class Tracked<E extends Function> extends ForwardingList<E> {
+
+        private final List<E> list = Lists.newArrayList();
+
+        @Override
+        protected List<E> delegate() { return list; }
+
+        private <T> T modified(T result) {
+            functions = null;
+            version++;
+            return result;
+        }
+
+        @Override
+        public boolean add(E element) { return modified(list.add(element)); }
+
+        @Override
+        public void add(int index, E element) { list.add(index, element); modified(null); }
+
+        @Override
+        public boolean addAll(Collection<? extends E> collection) { return modified(list.addAll(collection)); }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends E> elements) { return modified(list.addAll(index, elements)); }
+
+        @Override
+        public E set(int index, E element) { return modified(list.set(index, element)); }
+
+        @Override
+        public E remove(int index) { return modified(list.remove(index)); }
+
+        @Override
+        public boolean remove(Object object) { return modified(list.remove(object)); }
+
+        @Override
+        public boolean removeAll(Collection<?> collection) { return modified(list.removeAll(collection)); }
+
+        @Override
+        public boolean retainAll(Collection<?> collection) { return modified(list.retainAll(collection)); }
+
+        @Override
+        public void clear() { list.clear(); modified(null); }
+
+        @Override
+        public Iterator<E> iterator() { return standardIterator(); }
+
+        @Override
+        public ListIterator<E> listIterator() { return standardListIterator(); }
+
+        @Override
+        public ListIterator<E> listIterator(int index) { return standardListIterator(index); }
+
+        @Override
+        public List<E> subList(int from, int to) { return standardSubList(from, to); }
+    }
+
     public boolean add(Transform element) {
         if (element.getId() < 0) {
             element.setId(transforms.isEmpty() ? 1 : Ordering.from(IDENTITY).max(transforms).getId() + 1);
@@ -152,9 +263,26 @@ public class IFS extends ForwardingList<Function> {
         }
     }
 
+    /** Incremented whenever functions are added to or removed from the IFS. */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * The transforms followed by the reflections, as an immutable table that
+     * is rebuilt only after the IFS has been modified.
+     */
     @Override
     protected List<Function> delegate() {
-        return Stream.concat(transforms.stream(), reflections.stream()).collect(Collectors.toList());
+        List<Function> table = functions;
+        if (table == null) {
+            table = ImmutableList.<Function>builder()
+                    .addAll(transforms)
+                    .addAll(reflections)
+                    .build();
+            functions = table;
+        }
+        return table;
     }
 
     @Override
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import com.google.common.base.MoreObjects;
+
+import iterator.model.functions.CoordinateTransform;
+
+/**
+ * Chaos game step specialised for a set of functions and settings.
+ * <p>
+ * The kernel is created once for a {@link Composition} table, coordinate
+ * transform and function order, and reused until any of them change, so
+ * the render loop makes no decisions that are constant for the IFS. Each
+ * case is a separate final class, so the call site in the loop sees a
+ * single receiver type, and the matrix coefficients are copied into one
+ * flat array. Functions are chosen with an alias table in constant time,
+ * rather than by rejecting unweighted choices.
+ * <p>
+ * Affine functions may also be iterated in single precision, which is
+ * enough to resolve pixels unless the view is zoomed in a long way, and
+ * halves the size of the coefficient arrays the loop reads from.
+ */
+public abstract class Kernel {
+
+    /** Fractional part of the golden ratio, which steps a quasi-random sequence for {@link #choose(double)}. */
+    public static final double GOLDEN_RATIO = (Math.sqrt(5d) - 1d) / 2d;
+
+    protected final Composition table;
+    protected final Function function;
+    protected final boolean reverse, single;
+    protected final double[] matrix;
+    private final int[] first, alias;
+    private final double[] threshold;
+
+    protected Kernel(Composition table, Function function, boolean reverse, boolean single) {
+        this.table = table;
+        this.function = function;
+        this.reverse = reverse;
+        this.single = single;
+
+        int size = table.size();
+        matrix = new double[size * 6];
+        first = new int[size];
+        double[] coefficients = new double[6];
+        for (int c = 0; c < size; c++) {
+            table.getMatrix(c, coefficients);
+            System.arraycopy(coefficients, 0, matrix, c * 6, 6);
+            first[c] = table.getFirst(c);
+        }
+
+        // Vose alias table, pairing each under-weight choice with an over-weight one
+        alias = new int[size];
+        threshold = new double[size];
+        double total = 0d;
+        for (int c = 0; c < size; c++) {
+            total += table.getProbability(c);
+        }
+        double[] scaled = new double[size];
+        int[] small = new int[size], large = new int[size];
+        int s = 0, l = 0;
+        for (int c = 0; c < size; c++) {
+            scaled[c] = table.getProbability(c) * size / total;
+            if (scaled[c] < 1d) small[s++] = c; else large[l++] = c;
+        }
+        while (s > 0 && l > 0) {
+            int under = small[--s], over = large[--l];
+            threshold[under] = scaled[under];
+            alias[under] = over;
+            scaled[over] -= 1d - scaled[under];
+            if (scaled[over] < 1d) small[s++] = over; else large[l++] = over;
+        }
+        while (l > 0) threshold[large[--l]] = 1d;
+        while (s > 0) threshold[small[--s]] = 1d;
+    }
+
+    /**
+     * Creates the kernel for a table of functions, a coordinate transform,
+     * and whether the transform is applied before the functions.
+     *
+     * @param single whether affine functions are iterated in single precision,
+     *        which is ignored with any other coordinate transform
+     */
+    public static Kernel of(Composition table, Function function, boolean reverse, boolean single) {
+        if (function.getId() == CoordinateTransform.Type.IDENTITY.getId()) {
+            if (single) {
+                return new Single(table, function, reverse, single);
+            } else {
+                return table.getPower() > 1 ? new Composed(table, function, reverse, single) : new Affine(table, function, reverse, single);
+            }
+        } else {
+            return reverse ? new Reverse(table, function, reverse, single) : new Forward(table, function, reverse, single);
+        }
+    }
+
+    /** Whether the kernel was created for this table, coordinate transform, order and precision. */
+    public boolean matches(Composition table, Function function, boolean reverse, boolean single) {
+        return this.table == table && this.function == function && this.reverse == reverse && this.single == single;
+    }
+
+    public boolean isEmpty() { return first.length == 0; }
+
+    /** The number of functions composed in each step. */
+    public int getPower() { return table.getPower(); }
+
+    /** Chooses a function, weighted by probability. */
+    public final int choose(Random random) {
+        int c = random.nextInt(first.length);
+        return random.nextDouble() < threshold[c] ? c : alias[c];
+    }
+
+    /**
+     * Chooses a function, weighted by probability, for a uniform value in
+     * {@code [0, 1)}, such as a quasi-random sequence. The integer part of
+     * the scaled value picks a column of the alias table, and the
+     * fractional part decides between it and its alias.
+     */
+    public final int choose(double u) {
+        double v = u * first.length;
+        int c = Math.min((int) v, first.length - 1);
+        return v - c < threshold[c] ? c : alias[c];
+    }
+
+    /** The index of the transform that produces the point for choice {@code c}, used for colouring. */
+    public final int getFirst(int c) { return first[c]; }
+
+    /** Applies the function for choice {@code c} to a point. */
+    public abstract Point2D apply(int c, Point2D src);
+
+    /** The previous point used by the colour modes, before the last function of choice {@code c} was applied. */
+    public Point2D previous(int c, Point2D src) { return src; }
+
+    protected final Point2D affine(double[] matrix, int c, Point2D src) {
+        int o = c * 6;
+        double x = src.getX(), y = src.getY();
+        return new Point2D.Double(
+                matrix[o + 0] * x + matrix[o + 2] * y + matrix[o + 4],
+                matrix[o + 1] * x + matrix[o + 3] * y + matrix[o + 5]);
+    }
+
+    /** Single affine functions, with the identity transform. */
+    private static final class Affine extends Kernel {
+
+        private Affine(Composition table, Function function, boolean reverse, boolean single) {
+            super(table, function, reverse, single);
+        }
+
+        @Override
+        public Point2D apply(int c, Point2D src) {
+            return affine(matrix, c, src);
+        }
+    }
+
+    /** Precomposed affine functions, with the identity transform. */
+    private static final class Composed extends Kernel {
+
+        private final double[] tail;
+
+        private Composed(Composition table, Function function, boolean reverse, boolean single) {
+            super(table, function, reverse, single);
+            tail = new double[table.size() * 6];
+            double[] coefficients = new double[6];
+            for (int c = 0; c < table.size(); c++) {
+                table.getTail(c, coefficients);
+                System.arraycopy(coefficients, 0, tail, c * 6, 6);
+            }
+        }
+
+        @Override
+        public Point2D apply(int c, Point2D src) {
+            return affine(matrix, c, src);
+        }
+
+        @Override
+        public Point2D previous(int c, Point2D src) {
+            return affine(tail, c, src);
+        }
+    }
+
+    /** Single or precomposed affine functions in single precision, with the identity transform. */
+    private static final class Single extends Kernel {
+
+        private final float[] coefficients, tail;
+        private final boolean composed;
+
+        private Single(Composition table, Function function, boolean reverse, boolean single) {
+            super(table, function, reverse, single);
+            composed = table.getPower() > 1;
+            coefficients = new float[table.size() * 6];
+            tail = new float[table.size() * 6];
+            double[] m = new double[6];
+            for (int c = 0; c < table.size(); c++) {
+                table.getMatrix(c, m);
+                for (int i = 0; i < 6; i++) coefficients[c * 6 + i] = (float) m[i];
+                table.getTail(c, m);
+                for (int i = 0; i < 6; i++) tail[c * 6 + i] = (float) m[i];
+            }
+        }
+
+        @Override
+        public Point2D apply(int c, Point2D src) {
+            return affine(coefficients, c, src);
+        }
+
+        @Override
+        public Point2D previous(int c, Point2D src) {
+            return composed ? affine(tail, c, src) : src;
+        }
+
+        private static Point2D affine(float[] matrix, int c, Point2D src) {
+            int o = c * 6;
+            float x = (float) src.getX(), y = (float) src.getY();
+            return new Point2D.Float(
+                    matrix[o + 0] * x + matrix[o + 2] * y + matrix[o + 4],
+                    matrix[o + 1] * x + matrix[o + 3] * y + matrix[o + 5]);
+        }
+    }
+
+    /** Affine functions followed by a coordinate transform. */
+    private static final class Forward extends Kernel {
+
+        private Forward(Composition table, Function function, boolean reverse, boolean single) {
+            super(table, function, reverse, single);
+        }
+
+        @Override
+        public Point2D apply(int c, Point2D src) {
+            return function.apply(affine(matrix, c, src));
+        }
+    }
+
+    /** A coordinate transform followed by affine functions. */
+    private static final class Reverse extends Kernel {
+
+        private Reverse(Composition table, Function function, boolean reverse, boolean single) {
+            super(table, function, reverse, single);
+        }
+
+        @Override
+        public Point2D apply(int c, Point2D src) {
+            return affine(matrix, c, function.apply(src));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("table", table)
+                .add("function", function)
+                .add("reverse", reverse)
+                .add("single", single)
+                .toString();
+    }
+
+}
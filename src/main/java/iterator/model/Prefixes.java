@@ -0,0 +1,292 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+
+/**
+ * Table of the function address prefixes that map the attractor into a viewport.
+ * <p>
+ * Every point of the attractor is the image of another point under a
+ * composition of {@code k} functions, chosen with the product of their
+ * probabilities. When zoomed in, most compositions map the whole
+ * {@link Snapshot#getRadius() bounding disc} outside the viewport, so points
+ * are instead plotted as the image of the walker under a prefix chosen from
+ * the visible ones, with the same relative probabilities. This gives the
+ * same density inside the viewport, up to a constant factor, while almost
+ * every point plotted lands inside it.
+ * <p>
+ * The prefix with the largest image of the disc is repeatedly extended by
+ * each function, discarding those whose image of the disc, or any of its
+ * symmetric images, misses the viewport, until the table would grow larger
+ * than {@link #LIMIT}, or every image is small compared to the viewport.
+ * Prefixes whose images lie entirely inside or outside the viewport are
+ * not extended, since that would discard nothing. Each prefix is
+ * then composed with the elements of the {@link Symmetry} group whose
+ * image meets the viewport, and only that image is plotted, so the table
+ * replaces plotting every symmetric image of the point.
+ */
+public final class Prefixes {
+
+    /** Prefix table that plots the walker directly. */
+    public static final Prefixes EMPTY = new Prefixes(Snapshot.EMPTY, null, 0, Lists.newArrayList(), 1d);
+
+    /** Largest number of prefixes in a table. */
+    public static final int LIMIT = 4096;
+
+    /** Longest prefix that will be generated. */
+    public static final int MAX_LENGTH = 32;
+
+    /** Prefixes are extended until their images are smaller than this fraction of the viewport. */
+    public static final double RESOLUTION = 0.05d;
+
+    private static final class Prefix {
+
+        private final double[] matrix, tail;
+        private final int first, length;
+        private final double probability, x, y, r;
+
+        private Prefix(double[] matrix, double[] tail, int first, int length, double probability, Point2D centre, double radius) {
+            this.matrix = matrix;
+            this.tail = tail;
+            this.first = first;
+            this.length = length;
+            this.probability = probability;
+            this.x = matrix[0] * centre.getX() + matrix[2] * centre.getY() + matrix[4];
+            this.y = matrix[1] * centre.getX() + matrix[3] * centre.getY() + matrix[5];
+            this.r = radius * Snapshot.norm(matrix, 0);
+        }
+    }
+
+    private final Snapshot functions;
+    private final Rectangle2D viewport;
+    private final int length;
+    private final int[] first;
+    private final double[] matrix, tail, cumulative;
+    private final double visible;
+
+    private Prefixes(Snapshot functions, Rectangle2D viewport, int length, List<Prefix> prefixes, double visible) {
+        this.functions = functions;
+        this.viewport = viewport;
+        this.length = length;
+        this.visible = visible;
+
+        int size = prefixes.size();
+        first = new int[size];
+        matrix = new double[size * 6];
+        tail = new double[size * 6];
+        cumulative = new double[size];
+        double total = 0d;
+        for (int i = 0; i < size; i++) {
+            Prefix prefix = prefixes.get(i);
+            first[i] = prefix.first;
+            System.arraycopy(prefix.matrix, 0, matrix, i * 6, 6);
+            System.arraycopy(prefix.tail, 0, tail, i * 6, 6);
+            total += prefix.probability;
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    /**
+     * Generates the prefix table for a viewport in IFS co-ordinates.
+     *
+     * @return the table, which is empty unless the functions are contracting
+     *         and part of the bounding disc lies outside the viewport
+     */
+    public static Prefixes of(Snapshot functions, Rectangle2D viewport) {
+        if (!functions.isContracting()) return empty(functions, viewport);
+
+        Symmetry symmetry = functions.getSymmetry();
+        int order = symmetry.getOrder();
+        int n = functions.size();
+        int m = n * order;
+        Point2D centre = functions.getCentre();
+        double radius = functions.getRadius();
+        double resolution = RESOLUTION * Math.min(viewport.getWidth(), viewport.getHeight());
+
+        // The composed functions and their selection probabilities
+        double[] maps = new double[m * 6];
+        double[] probability = new double[m];
+        double[] coefficients = new double[6];
+        for (int j = 0; j < n; j++) {
+            for (int g = 0; g < order; g++) {
+                functions.getMatrix(j, g, coefficients);
+                System.arraycopy(coefficients, 0, maps, (j * order + g) * 6, 6);
+                probability[j * order + g] = functions.getWeight(j) / functions.getWeight() / order;
+            }
+        }
+
+        // Extend the prefix with the largest image until the table is full
+        double[] identity = new double[] { 1d, 0d, 0d, 1d, 0d, 0d };
+        PriorityQueue<Prefix> queue = new PriorityQueue<>(Comparator.comparingDouble((Prefix p) -> p.r).reversed());
+        List<Prefix> level = Lists.newArrayList();
+        queue.add(new Prefix(identity, identity, -1, 0, 1d, centre, radius));
+        while (!queue.isEmpty() && queue.size() + level.size() + m <= LIMIT) {
+            Prefix prefix = queue.poll();
+            if (prefix.r < resolution || prefix.length == MAX_LENGTH || !straddles(viewport, symmetry, prefix)) {
+                level.add(prefix);
+                continue;
+            }
+            for (int f = 0; f < m; f++) {
+                double[] composed = compose(prefix.matrix, maps, f * 6);
+                double[] rest = prefix.length == 0 ? identity : compose(prefix.tail, maps, f * 6);
+                int j = prefix.length == 0 ? f / order : prefix.first;
+                Prefix child = new Prefix(composed, rest, j, prefix.length + 1, prefix.probability * probability[f], centre, radius);
+                if (meets(viewport, symmetry, child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        level.addAll(queue);
+        int length = level.stream().mapToInt(p -> p.length).max().orElse(0);
+        if (length == 0) return empty(functions, viewport);
+
+        // Compose the prefixes with the symmetric images that meet the viewport
+        List<Prefix> images = Lists.newArrayList();
+        double[] element = new double[6];
+        double visible = 0d;
+        for (Prefix prefix : level) {
+            for (int h = 0; h < order; h++) {
+                symmetry.getMatrix(h, element);
+                if (meets(viewport, element, prefix)) {
+                    images.add(new Prefix(compose(element, prefix.matrix, 0), prefix.tail, prefix.first, prefix.length, prefix.probability, centre, radius));
+                    visible += prefix.probability / order;
+                }
+            }
+        }
+
+        // Nothing was discarded, so plot the walker directly
+        if (visible > 1d - 1e-9d) return empty(functions, viewport);
+
+        return new Prefixes(functions, viewport, length, images, visible);
+    }
+
+    private static Prefixes empty(Snapshot functions, Rectangle2D viewport) {
+        return new Prefixes(functions, viewport, 0, Lists.newArrayList(), 1d);
+    }
+
+    /** Composes an affine matrix with one of the functions, which is applied first. */
+    private static double[] compose(double[] a, double[] b, int j) {
+        return new double[] {
+            a[0] * b[j + 0] + a[2] * b[j + 1],
+            a[1] * b[j + 0] + a[3] * b[j + 1],
+            a[0] * b[j + 2] + a[2] * b[j + 3],
+            a[1] * b[j + 2] + a[3] * b[j + 3],
+            a[0] * b[j + 4] + a[2] * b[j + 5] + a[4],
+            a[1] * b[j + 4] + a[3] * b[j + 5] + a[5]
+        };
+    }
+
+    /** Whether the image of the disc under a prefix, or any of its symmetric images, meets the viewport. */
+    private static boolean meets(Rectangle2D viewport, Symmetry symmetry, Prefix prefix) {
+        double[] element = new double[6];
+        for (int h = 0; h < symmetry.getOrder(); h++) {
+            symmetry.getMatrix(h, element);
+            if (meets(viewport, element, prefix)) return true;
+        }
+        return false;
+    }
+
+    /** Whether any symmetric image of the disc under a prefix crosses the edge of the viewport. */
+    private static boolean straddles(Rectangle2D viewport, Symmetry symmetry, Prefix prefix) {
+        double[] element = new double[6];
+        for (int h = 0; h < symmetry.getOrder(); h++) {
+            symmetry.getMatrix(h, element);
+            if (meets(viewport, element, prefix) && !contains(viewport, element, prefix)) return true;
+        }
+        return false;
+    }
+
+    /** Whether the image of the disc under a prefix and an isometry meets the viewport. */
+    private static boolean meets(Rectangle2D viewport, double[] element, Prefix prefix) {
+        double px = element[0] * prefix.x + element[2] * prefix.y + element[4];
+        double py = element[1] * prefix.x + element[3] * prefix.y + element[5];
+        return px + prefix.r >= viewport.getMinX() && px - prefix.r <= viewport.getMaxX()
+                && py + prefix.r >= viewport.getMinY() && py - prefix.r <= viewport.getMaxY();
+    }
+
+    /** Whether the image of the disc under a prefix and an isometry lies inside the viewport. */
+    private static boolean contains(Rectangle2D viewport, double[] element, Prefix prefix) {
+        double px = element[0] * prefix.x + element[2] * prefix.y + element[4];
+        double py = element[1] * prefix.x + element[3] * prefix.y + element[5];
+        return px - prefix.r >= viewport.getMinX() && px + prefix.r <= viewport.getMaxX()
+                && py - prefix.r >= viewport.getMinY() && py + prefix.r <= viewport.getMaxY();
+    }
+
+    /** Whether the table was generated for these functions and viewport. */
+    public boolean matches(Snapshot functions, Rectangle2D viewport) {
+        return this.functions == functions && viewport.equals(this.viewport);
+    }
+
+    /** Whether the walker is plotted directly, without a prefix. */
+    public boolean isEmpty() { return first.length == 0; }
+
+    /** The number of prefixes, counting each symmetric image separately. */
+    public int size() { return first.length; }
+
+    /** The number of functions in the longest prefix. */
+    public int getLength() { return length; }
+
+    /** The fraction of the points plotted without the table that the prefixes could place in the viewport. */
+    public double getVisible() { return visible; }
+
+    /** Chooses a prefix, weighted by probability, for a uniform random value. */
+    public int select(double random) {
+        int i = Arrays.binarySearch(cumulative, random);
+        return Math.min(i < 0 ? -i - 1 : i, first.length - 1);
+    }
+
+    /** The index of the outermost transform of prefix {@code i}, which produces the plotted point. */
+    public int getFirst(int i) { return first[i]; }
+
+    /** Applies prefix {@code i}, and its symmetric image, to a point. */
+    public Point2D apply(int i, Point2D src) {
+        return apply(matrix, i * 6, src);
+    }
+
+    /** Applies prefix {@code i} without its outermost function, giving the previous point for the colour modes. */
+    public Point2D applyTail(int i, Point2D src) {
+        return apply(tail, i * 6, src);
+    }
+
+    private static Point2D apply(double[] matrix, int o, Point2D src) {
+        double x = src.getX(), y = src.getY();
+        return new Point2D.Double(
+                matrix[o + 0] * x + matrix[o + 2] * y + matrix[o + 4],
+                matrix[o + 1] * x + matrix[o + 3] * y + matrix[o + 5]);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("size", size())
+                .add("length", length)
+                .add("visible", visible)
+                .toString();
+    }
+
+}
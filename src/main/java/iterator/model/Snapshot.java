@@ -0,0 +1,247 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+/**
+ * Immutable compiled form of an {@link IFS}.
+ * <p>
+ * Every {@link Function} is affine, so the snapshot holds the six matrix
+ * coefficients of each function in a flat array, along with the weights
+ * used to select them. The functions are read once, on the thread that
+ * creates the snapshot, so render threads can share it without locking
+ * while the IFS continues to be edited.
+ * <p>
+ * When the reflections, and any rotational symmetry, generate a finite
+ * {@link Symmetry} group, and the points can be plotted at their symmetric
+ * images directly, only the transforms are selected. Each is composed with
+ * every element of the group, and the chaos game picks an element at random
+ * with the transform, so that the reflections are never sampled as separate
+ * iterations. Otherwise the reflections and the rotation are selected like
+ * the transforms, as before.
+ */
+public final class Snapshot {
+
+    /** Snapshot with no functions. */
+    public static final Snapshot EMPTY = new Snapshot(ImmutableList.of(), 1, false);
+
+    private final int size, transforms;
+    private final int[] ids;
+    private final double[] matrix;
+    private final double[] weights;
+    private final double weight, contraction, norm, radius;
+    private final Point2D centre;
+    private final Symmetry symmetry;
+
+    private Snapshot(List<Function> functions, int rotation, boolean splat) {
+        List<Transform> selected = Lists.newArrayList();
+        List<Integer> generated = Lists.newArrayList();
+        List<AffineTransform> generators = Lists.newArrayList();
+        for (Function f : functions) {
+            if (f instanceof Transform) {
+                selected.add((Transform) f);
+            } else {
+                generated.add(f.getId());
+                generators.add(f.getTransform());
+            }
+        }
+        if (rotation > 1 && !functions.isEmpty()) {
+            generated.add(-1);
+            generators.add(Symmetry.rotation(rotation, functions.get(0).getSize()));
+        }
+
+        // Sample the generators as functions unless they form a finite group
+        Optional<Symmetry> group = splat ? Symmetry.generate(generators) : Optional.empty();
+        if (group.isPresent()) {
+            generated.clear();
+            generators.clear();
+        }
+        symmetry = group.orElse(Symmetry.TRIVIAL);
+
+        int order = symmetry.getOrder();
+        transforms = selected.size();
+        size = transforms + generators.size();
+        ids = new int[size];
+        matrix = new double[size * order * 6];
+        weights = new double[size];
+
+        double[] coefficients = new double[6];
+        double total = 0d, log = 0d, largest = 0d;
+        for (int j = 0; j < transforms; j++) {
+            Transform t = selected.get(j);
+            ids[j] = t.getId();
+            weights[j] = t.getWeight();
+            total += weights[j];
+            t.getTransform().getMatrix(coefficients);
+            double scale = norm(coefficients, 0);
+            log += weights[j] * Math.log(Math.max(scale, Double.MIN_NORMAL));
+            largest = Math.max(largest, scale);
+            for (int g = 0; g < order; g++) {
+                symmetry.getMatrix(g, coefficients);
+                AffineTransform composed = new AffineTransform(coefficients);
+                composed.preConcatenate(t.getTransform());
+                composed.getMatrix(coefficients);
+                System.arraycopy(coefficients, 0, matrix, (j * order + g) * 6, 6);
+            }
+        }
+
+        // Reflections and rotations are selected with the combined weight of the transforms
+        for (int j = transforms; j < size; j++) {
+            ids[j] = generated.get(j - transforms);
+            generators.get(j - transforms).getMatrix(coefficients);
+            System.arraycopy(coefficients, 0, matrix, (transforms * order + j - transforms) * 6, 6);
+            weights[j] = total;
+        }
+
+        weight = total;
+        contraction = total > 0d ? Math.exp(log / total) : 1d;
+        norm = largest;
+
+        // Disc around the mean of the fixed points that every function maps inside itself
+        int m = transforms * order;
+        double cx = 0d, cy = 0d, distance = 0d;
+        if (isContracting()) {
+            for (int f = 0; f < m; f++) {
+                int o = f * 6;
+                double det = (1d - matrix[o + 0]) * (1d - matrix[o + 3]) - matrix[o + 1] * matrix[o + 2];
+                cx += (matrix[o + 4] * (1d - matrix[o + 3]) + matrix[o + 2] * matrix[o + 5]) / det / m;
+                cy += (matrix[o + 5] * (1d - matrix[o + 0]) + matrix[o + 1] * matrix[o + 4]) / det / m;
+            }
+            for (int f = 0; f < m; f++) {
+                int o = f * 6;
+                double x = matrix[o + 0] * cx + matrix[o + 2] * cy + matrix[o + 4];
+                double y = matrix[o + 1] * cx + matrix[o + 3] * cy + matrix[o + 5];
+                distance = Math.max(distance, Math.hypot(x - cx, y - cy));
+            }
+        }
+        centre = new Point2D.Double(cx, cy);
+        radius = isContracting() ? distance / (1d - norm) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * The spectral norm of the linear part of an affine matrix, its largest
+     * scale factor, with coefficients as for {@link AffineTransform#getMatrix(double[])}.
+     */
+    public static double norm(double[] matrix, int o) {
+        double a = matrix[o + 0], b = matrix[o + 1];
+        double c = matrix[o + 2], d = matrix[o + 3];
+        double sum = a * a + b * b + c * c + d * d;
+        double det = a * d - b * c;
+        return Math.sqrt((sum + Math.sqrt(Math.max(0d, sum * sum - 4d * det * det))) / 2d);
+    }
+
+    /** Compiles a list of functions, with the transforms first, such as an {@link IFS}. */
+    public static Snapshot of(List<? extends Function> functions) {
+        return of(functions, 1, false);
+    }
+
+    /**
+     * Compiles a list of functions, with the transforms first, such as an
+     * {@link IFS}, with optional rotational symmetry.
+     *
+     * @param rotation the order of rotational symmetry about the centre of the display
+     * @param splat whether points may be plotted at all their symmetric images,
+     *        which is only correct when the coordinate transform is the identity
+     */
+    public static Snapshot of(List<? extends Function> functions, int rotation, boolean splat) {
+        return functions.isEmpty() ? EMPTY : new Snapshot(ImmutableList.copyOf(functions), rotation, splat);
+    }
+
+    public boolean isEmpty() { return size == 0; }
+
+    /** The number of functions. */
+    public int size() { return size; }
+
+    /** The number of transforms, which precede the reflections. */
+    public int getTransforms() { return transforms; }
+
+    public int getId(int j) { return ids[j]; }
+
+    /** The total weight of the transforms. */
+    public double getWeight() { return weight; }
+
+    /** The weight of function {@code j}. */
+    public double getWeight(int j) { return weights[j]; }
+
+    /**
+     * The average factor by which the transforms scale distances on each
+     * step, as the geometric mean of their largest scale factors weighted
+     * by selection probability. Two points following the same functions
+     * converge if it is less than one. Reflections and the symmetry group
+     * are isometries, so are not included.
+     */
+    public double getContraction() { return contraction; }
+
+    /** The largest factor by which any transform scales distances. */
+    public double getNorm() { return norm; }
+
+    /**
+     * Whether every function is a contraction, with no reflections sampled
+     * as functions, so that the attractor lies inside a bounding disc.
+     */
+    public boolean isContracting() {
+        return transforms > 0 && size == transforms && norm < 1d;
+    }
+
+    /** The centre of a disc that every function maps inside itself, if contracting. */
+    public Point2D getCentre() { return centre; }
+
+    /** The radius of a disc that every function maps inside itself, or infinity unless contracting. */
+    public double getRadius() { return radius; }
+
+    /** The symmetry group whose images are plotted for every point. */
+    public Symmetry getSymmetry() { return symmetry; }
+
+    /** The coefficients of function {@code j} composed with element {@code g} of the symmetry group. */
+    public void getMatrix(int j, int g, double[] coefficients) {
+        int o = (j < transforms ? j * symmetry.getOrder() + g : transforms * symmetry.getOrder() + j - transforms) * 6;
+        System.arraycopy(matrix, o, coefficients, 0, 6);
+    }
+
+    /** Applies function {@code j} to a point. */
+    public Point2D apply(int j, Point2D src) {
+        return apply(j, 0, src);
+    }
+
+    /** Applies function {@code j} to the image of a point under element {@code g} of the symmetry group. */
+    public Point2D apply(int j, int g, Point2D src) {
+        int o = (j < transforms ? j * symmetry.getOrder() + g : transforms * symmetry.getOrder() + j - transforms) * 6;
+        double x = src.getX(), y = src.getY();
+        return new Point2D.Double(
+                matrix[o + 0] * x + matrix[o + 2] * y + matrix[o + 4],
+                matrix[o + 1] * x + matrix[o + 3] * y + matrix[o + 5]);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("ids", Arrays.toString(ids))
+                .add("transforms", transforms)
+                .add("weight", weight)
+                .add("symmetry", symmetry)
+                .toString();
+    }
+
+}
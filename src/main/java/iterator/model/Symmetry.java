@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.util.List;
+import java.util.Optional;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Lists;
+
+/**
+ * Finite symmetry group of an {@link IFS}.
+ * <p>
+ * The group is generated by the reflections, and any rotational symmetry,
+ * by composing them until no new elements are found. Its elements are held
+ * as flat affine matrices, with the identity first. Generators that do not
+ * share a fixed point, or whose angles are not rational multiples of a
+ * turn, generate an infinite group, which is reported as absent.
+ */
+public final class Symmetry {
+
+    /** Largest group that will be generated. */
+    public static final int MAX_ORDER = 48;
+
+    /** Group with only the identity. */
+    public static final Symmetry TRIVIAL = new Symmetry(new double[] { 1d, 0d, 0d, 1d, 0d, 0d });
+
+    /** Tolerances for comparing the linear and translation parts of elements. */
+    private static final double LINEAR = 1e-6d, TRANSLATION = 1e-3d;
+
+    private final double[] matrix;
+
+    private Symmetry(double[] matrix) {
+        this.matrix = matrix;
+    }
+
+    /**
+     * Generates the group for a set of isometries.
+     *
+     * @return the group, or absent if it is infinite or larger than {@link #MAX_ORDER}
+     */
+    public static Optional<Symmetry> generate(List<AffineTransform> generators) {
+        if (generators.isEmpty()) return Optional.of(TRIVIAL);
+
+        List<AffineTransform> elements = Lists.newArrayList(new AffineTransform());
+        for (int i = 0; i < elements.size(); i++) {
+            for (AffineTransform generator : generators) {
+                AffineTransform element = new AffineTransform(generator);
+                element.concatenate(elements.get(i));
+                if (elements.stream().noneMatch(e -> equal(e, element))) {
+                    if (elements.size() == MAX_ORDER) return Optional.empty();
+                    elements.add(element);
+                }
+            }
+        }
+
+        double[] matrix = new double[elements.size() * 6];
+        double[] coefficients = new double[6];
+        for (int g = 0; g < elements.size(); g++) {
+            elements.get(g).getMatrix(coefficients);
+            System.arraycopy(coefficients, 0, matrix, g * 6, 6);
+        }
+        return Optional.of(new Symmetry(matrix));
+    }
+
+    /** Rotation by a fraction {@code 1/order} of a turn about the centre of the display. */
+    public static AffineTransform rotation(int order, Dimension size) {
+        return AffineTransform.getRotateInstance(2d * Math.PI / order, size.getWidth() / 2d, size.getHeight() / 2d);
+    }
+
+    private static boolean equal(AffineTransform a, AffineTransform b) {
+        return Math.abs(a.getScaleX() - b.getScaleX()) < LINEAR
+                && Math.abs(a.getShearY() - b.getShearY()) < LINEAR
+                && Math.abs(a.getShearX() - b.getShearX()) < LINEAR
+                && Math.abs(a.getScaleY() - b.getScaleY()) < LINEAR
+                && Math.abs(a.getTranslateX() - b.getTranslateX()) < TRANSLATION
+                && Math.abs(a.getTranslateY() - b.getTranslateY()) < TRANSLATION;
+    }
+
+    /** The number of elements. */
+    public int getOrder() { return matrix.length / 6; }
+
+    /** The coefficients of element {@code g}, as for {@link AffineTransform#getMatrix(double[])}. */
+    public void getMatrix(int g, double[] coefficients) {
+        System.arraycopy(matrix, g * 6, coefficients, 0, 6);
+    }
+
+    /** Applies element {@code g} to a point. */
+    public Point2D apply(int g, Point2D src) {
+        int o = g * 6;
+        double x = src.getX(), y = src.getY();
+        return new Point2D.Double(
+                matrix[o + 0] * x + matrix[o + 2] * y + matrix[o + 4],
+                matrix[o + 1] * x + matrix[o + 3] * y + matrix[o + 5]);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("order", getOrder())
+                .toString();
+    }
+
+}
@@ -34,10 +34,8 @@ public class Bent extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double x = (src.getX() - ox) / ox;
-        double y = (src.getY() - oy) / oy;
+        double x = (src.getX() - ox) * rx;
+        double y = (src.getY() - oy) * ry;
 
         double fx = ox + (ox * x);
         double fy = oy + (ox * y);
@@ -34,16 +34,12 @@ public class Bubble extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
-        double r = Point2D.distance(ox, oy, src.getX(), src.getY()) / u;
-        double scale = 4d / ((r * r) + 4d);
-        double x = (src.getX() - ox) / u;
-        double y = (src.getY() - oy) / u;
+        double x = (src.getX() - ox) * iu;
+        double y = (src.getY() - oy) * iu;
+        double scale = u * 4d / ((x * x) + (y * y) + 4d);
 
-        double fx = ox + (u * scale * x);
-        double fy = oy + (u * scale * y);
+        double fx = ox + (scale * x);
+        double fy = oy + (scale * y);
 
         return new Point2D.Double(fx, fy);
     }
@@ -2,8 +2,10 @@ package iterator.model.functions;
 
 import java.awt.Dimension;
 import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.base.MoreObjects;
@@ -14,37 +16,81 @@ import iterator.model.Function;
 
 public abstract class CoordinateTransform implements Function {
 
+    /**
+     * Factory for the coordinate transform variations.
+     * <p>
+     * Each call to {@link #create(Dimension)} returns a new instance, so that
+     * engines rendering at different sizes do not share mutable state.
+     */
     public enum Type {
 
-        IDENTITY("id", Identity.create()),
-        SPHERICAL("sph", Spherical.create()),
-        SWIRL("sw", Swirl.create()),
-        HORSESHOE("hrs", Horseshoe.create()),
-        POLAR("pol", Polar.create()),
-        HYPERBOLIC("hyp", Hyperbolic.create()),
-        BENT("bent", Bent.create()),
-        FISHEYE("fish", Fisheye.create()),
-        EXPONENTIAL("exp", Exponential.create()),
-        BUBBLE("bbl", Bubble.create()),
-        EYEFISH("eye", Eyefish.create()),
-        CYLINDER("cyl", Cylinder.create()),
-        TANGENT("tan", Tangent.create());
+        IDENTITY("id", Identity::create, false),
+        SPHERICAL("sph", Spherical::create, false),
+        SWIRL("sw", Swirl::create, true),
+        HORSESHOE("hrs", Horseshoe::create, true),
+        POLAR("pol", Polar::create, true),
+        HYPERBOLIC("hyp", Hyperbolic::create, true),
+        BENT("bent", Bent::create, false),
+        FISHEYE("fish", Fisheye::create, false),
+        EXPONENTIAL("exp", Exponential::create, true),
+        BUBBLE("bbl", Bubble::create, false),
+        EYEFISH("eye", Eyefish::create, false),
+        CYLINDER("cyl", Cylinder::create, true),
+        TANGENT("tan", Tangent::create, true);
 
         private final String name;
-        private final CoordinateTransform function;
-
-        Type(String name, CoordinateTransform function) {
+        private final Supplier<CoordinateTransform> factory;
+        private final boolean lookup;
+        private final int id;
+
+        /**
+         * @param lookup whether the variation is expensive enough to be
+         *        faster using a lookup table than evaluated directly
+         */
+        Type(String name, Supplier<CoordinateTransform> factory, boolean lookup) {
             this.name = name;
-            this.function = function;
+            this.factory = factory;
+            this.lookup = lookup;
+            this.id = factory.get().getId();
         }
 
         public String getShortName() { return name; }
 
-        public CoordinateTransform getFunction() { return function; }
+        public int getId() { return id; }
+
+        /** Creates a new instance of the variation for a display size. */
+        public CoordinateTransform create(Dimension size) {
+            return create(size, 0, false);
+        }
+
+        /**
+         * Creates a new instance of the variation for a display size, using a
+         * {@link Lookup} table with the given grid spacing if it is positive
+         * and the variation benefits from one, and {@link FastMath} if set.
+         */
+        public CoordinateTransform create(Dimension size, int step, boolean fast) {
+            CoordinateTransform function = factory.get();
+            function.fast = fast;
+            if (step(step) > 0) {
+                function = Lookup.create(function, step);
+            }
+            function.setSize(size);
+            return function;
+        }
+
+        /** Whether a variation instance was created by this type with the given settings. */
+        public boolean isInstance(CoordinateTransform function, Dimension size, int step, boolean fast) {
+            return function != null && function.id == id && function.getStep() == step(step) && function.isFast() == fast
+                    && function.sw == size.width && function.sh == size.height;
+        }
+
+        private int step(int step) {
+            return lookup ? Math.max(0, step) : 0;
+        }
 
         public static Type[] ordered() {
             List<Type> values = Arrays.asList(values());
-            values.sort((a, b) -> Ints.compare(a.getFunction().id, b.getFunction().id));
+            values.sort((a, b) -> Ints.compare(a.getId(), b.getId()));
             return values.toArray(new Type[0]);
         }
 
@@ -54,10 +100,40 @@ public abstract class CoordinateTransform implements Function {
         }
     }
 
+    /** Full turn in radians. */
+    public static final double TAU = 2d * Math.PI;
+
     protected int id;
     protected int sw;
     protected int sh;
 
+    /** Origin at the centre of the display. */
+    protected double ox, oy;
+
+    /** Reciprocals of the origin co-ordinates. */
+    protected double rx, ry;
+
+    /** Unit length for radial variations, and its reciprocal. */
+    protected double u, iu;
+
+    /** Whether to use the approximate {@link FastMath} functions. */
+    protected boolean fast;
+
+    /** The grid spacing of the lookup table, or zero if evaluated directly. */
+    public int getStep() { return 0; }
+
+    public boolean isFast() { return fast; }
+
+    protected double sin(double a) { return fast ? FastMath.sin(a) : Math.sin(a); }
+
+    protected double cos(double a) { return fast ? FastMath.cos(a) : Math.cos(a); }
+
+    protected double tan(double a) { return fast ? FastMath.tan(a) : Math.tan(a); }
+
+    protected double atan2(double y, double x) { return fast ? FastMath.atan2(y, x) : Math.atan2(y, x); }
+
+    protected double exp(double a) { return fast ? FastMath.exp(a) : Math.exp(a); }
+
     @Override
     public Dimension getSize() {
         return new Dimension(sw, sh);
@@ -77,6 +153,14 @@ public abstract class CoordinateTransform implements Function {
     public void setSize(Dimension size) {
         sw = size.width;
         sh = size.height;
+
+        // Normalisation constants used by the variations
+        ox = sw / 2d;
+        oy = sh / 2d;
+        rx = 1d / ox;
+        ry = 1d / oy;
+        u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
+        iu = 1d / u;
     }
 
     @Override
@@ -34,10 +34,9 @@ public class Cylinder extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double x = (src.getX() - ox) / ox;
+        double x = (src.getX() - ox) * rx;
 
-        double fx = ox + (ox * Math.sin(x * 2d * Math.PI));
+        double fx = ox + (ox * sin(x * TAU));
 
         return new Point2D.Double(fx, src.getY());
     }
@@ -34,14 +34,13 @@ public class Exponential extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double x = (src.getX() - ox) / ox;
-        double y = (src.getY() - oy) / oy;
-        double e = Math.exp(x - 1d);
+        double x = (src.getX() - ox) * rx;
+        double y = (src.getY() - oy) * ry;
+        double e = exp(x - 1d);
+        double theta = y * TAU;
 
-        double fx = ox + (ox * e * Math.cos(y * 2d * Math.PI));
-        double fy = oy + (oy * e * Math.sin(y * 2d * Math.PI));
+        double fx = ox + (ox * e * cos(theta));
+        double fy = oy + (oy * e * sin(theta));
 
         return new Point2D.Double(fx, fy);
     }
@@ -34,16 +34,13 @@ public class Eyefish extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
-        double r = Point2D.distance(ox, oy, src.getX(), src.getY()) / u;
-        double scale = 2d / (r + 1d);
-        double x = (src.getX() - ox) / u;
-        double y = (src.getY() - oy) / u;
+        double x = (src.getX() - ox) * iu;
+        double y = (src.getY() - oy) * iu;
+        double r = Math.sqrt((x * x) + (y * y));
+        double scale = u * 2d / (r + 1d);
 
-        double fx = ox + (u * scale * x);
-        double fy = oy + (u * scale * y);
+        double fx = ox + (scale * x);
+        double fy = oy + (scale * y);
 
         return new Point2D.Double(fx, fy);
     }
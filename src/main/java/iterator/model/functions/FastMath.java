@@ -0,0 +1,118 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model.functions;
+
+/**
+ * Fast approximate trigonometric and exponential functions.
+ * <p>
+ * These trade accuracy for speed in the coordinate transform variations,
+ * where the chaos game tolerates small errors. The maximum errors given are
+ * for arguments of moderate size; the trigonometric functions reduce their
+ * argument with a single multiplication, so the error grows with its
+ * magnitude, roughly as {@code |x| * 1e-16}.
+ */
+public class FastMath {
+
+    /** Number of table entries per turn, a power of two. */
+    private static final int SIZE = 1 << 12;
+    private static final int MASK = SIZE - 1;
+    private static final double TURN = SIZE / (2d * Math.PI);
+
+    /** Sine table over one turn, with an extra entry for interpolation. */
+    private static final double[] SINE = new double[SIZE + 1];
+
+    /** Number of table entries for the fractional powers of two. */
+    private static final int BITS = 10;
+    private static final int POWERS = 1 << BITS;
+    private static final double LOG2E = 1d / Math.log(2d);
+    private static final double LN2 = Math.log(2d);
+
+    /** Table of {@code 2^(i/POWERS)}. */
+    private static final double[] POWER = new double[POWERS];
+
+    static {
+        for (int i = 0; i <= SIZE; i++) {
+            SINE[i] = Math.sin(i / TURN);
+        }
+        for (int i = 0; i < POWERS; i++) {
+            POWER[i] = Math.pow(2d, (double) i / POWERS);
+        }
+    }
+
+    /** Sine by linear interpolation in a table, with maximum absolute error {@code 3e-7}. */
+    public static double sin(double a) {
+        double t = a * TURN;
+        double f = Math.floor(t);
+        int i = (int) ((long) f & MASK);
+        double s = SINE[i];
+        return s + (SINE[i + 1] - s) * (t - f);
+    }
+
+    /** Cosine by linear interpolation in a table, with maximum absolute error {@code 3e-7}. */
+    public static double cos(double a) {
+        return sin(a + (Math.PI / 2d));
+    }
+
+    /**
+     * Tangent as the ratio of the approximate sine and cosine, with maximum
+     * relative error {@code 3e-7 / |cos(a)|}, which grows near the poles.
+     */
+    public static double tan(double a) {
+        return sin(a) / cos(a);
+    }
+
+    /**
+     * Arc tangent of {@code y/x} in the correct quadrant, using a minimax
+     * polynomial, with maximum absolute error {@code 2e-6} radians.
+     */
+    public static double atan2(double y, double x) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if (ax == 0d && ay == 0d) {
+            return Math.atan2(y, x);
+        }
+
+        // Evaluate on [0, 1] and use the symmetries of the arc tangent
+        boolean swap = ay > ax;
+        double z = swap ? ax / ay : ay / ax;
+        double z2 = z * z;
+        double r = z * (0.99997726d + z2 * (-0.33262347d + z2 * (0.19354346d
+                + z2 * (-0.11643287d + z2 * (0.05265332d + z2 * -0.01172120d)))));
+        if (swap) r = (Math.PI / 2d) - r;
+        if (x < 0d) r = Math.PI - r;
+        return y < 0d ? -r : r;
+    }
+
+    /**
+     * Exponential using a table of fractional powers of two and a cubic
+     * correction, with maximum relative error {@code 1e-13}. Arguments that
+     * would overflow or underflow are passed to {@link Math#exp(double)}.
+     */
+    public static double exp(double a) {
+        if (!(a > -700d && a < 700d)) {
+            return Math.exp(a);
+        }
+
+        double t = a * LOG2E;
+        double k = Math.floor(t);
+        double f = (t - k) * POWERS;
+        int i = (int) f;
+        double r = (f - i) * (LN2 / POWERS);
+        double p = POWER[i] * (1d + r * (1d + r * (0.5d + r * (1d / 6d))));
+        return p * Double.longBitsToDouble(((long) k + 1023L) << 52);
+    }
+
+}
@@ -34,16 +34,12 @@ public class Horseshoe extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
-        double r = Point2D.distance(ox, oy, src.getX(), src.getY()) / u;
-        double scale = 1d / r;
-        double x = (src.getX() - ox) / u;
-        double y = (src.getY() - oy) / u;
+        double x = (src.getX() - ox) * iu;
+        double y = (src.getY() - oy) * iu;
+        double scale = u / Math.sqrt((x * x) + (y * y));
 
-        double fx = ox + (u * scale * (x - y) * (x + y));
-        double fy = oy + (u * scale * 2d * x * y);
+        double fx = ox + (scale * (x - y) * (x + y));
+        double fy = oy + (scale * 2d * x * y);
 
         return new Point2D.Double(fx, fy);
     }
@@ -34,17 +34,15 @@ public class Hyperbolic extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
-        double r = Point2D.distance(ox, oy, src.getX(), src.getY()) / u;
-        double scale = 1d / (r * r);
-        double x = (src.getX() - ox) / u;
-        double y = (src.getY() - oy) / u;
-        double theta = Math.atan2(y,  x);
+        double x = (src.getX() - ox) * iu;
+        double y = (src.getY() - oy) * iu;
+        double r2 = (x * x) + (y * y);
+        double r = Math.sqrt(r2);
+        double scale = u / r2;
+        double theta = atan2(y,  x);
 
-        double fx = ox + (u * scale * Math.sin(theta / r));
-        double fy = oy + (u * scale * r * Math.cos(theta));
+        double fx = ox + (scale * sin(theta / r));
+        double fy = oy + (scale * r * cos(theta));
 
         return new Point2D.Double(fx, fy);
     }
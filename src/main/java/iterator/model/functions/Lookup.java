@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.model.functions;
+
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.util.stream.IntStream;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Lookup table for a coordinate transform variation.
+ * <p>
+ * The variation is evaluated on a grid covering the display and a margin
+ * around it, and points are transformed by bilinear interpolation between
+ * the four surrounding grid values. Points outside the grid, and cells whose
+ * corners are not finite or are stretched far apart, such as those near a
+ * singularity or spanning a branch cut, are evaluated exactly.
+ */
+public class Lookup extends CoordinateTransform {
+
+    /** Margin around the display covered by the table, as a fraction of its size. */
+    public static final double MARGIN = 0.5d;
+
+    /** Cells stretched by more than this factor are evaluated exactly. */
+    public static final double STRETCH = 8d;
+
+    private final CoordinateTransform function;
+    private final int step;
+
+    private double x0, y0, inverse;
+    private int columns, rows;
+    private float[] table;
+    private boolean[] exact;
+
+    private Lookup(CoordinateTransform function, int step) {
+        this.function = function;
+        this.step = step;
+        this.id = function.getId();
+        this.fast = function.isFast();
+    }
+
+    public static Lookup create(CoordinateTransform function, int step) {
+        return new Lookup(function, step);
+    }
+
+    @Override
+    public int getStep() { return step; }
+
+    /**
+     * Evaluates the variation over the grid for the new size, in parallel.
+     */
+    @Override
+    public void setSize(Dimension size) {
+        super.setSize(size);
+        function.setSize(size);
+
+        x0 = -MARGIN * sw;
+        y0 = -MARGIN * sh;
+        inverse = 1d / step;
+        columns = (int) Math.ceil(sw * (1d + 2d * MARGIN) / step) + 1;
+        rows = (int) Math.ceil(sh * (1d + 2d * MARGIN) / step) + 1;
+        table = new float[columns * rows * 2];
+        exact = new boolean[(columns - 1) * (rows - 1)];
+
+        IntStream.range(0, rows).parallel().forEach(j -> {
+            Point2D point = new Point2D.Double();
+            for (int i = 0; i < columns; i++) {
+                point.setLocation(x0 + i * step, y0 + j * step);
+                Point2D result = function.apply(point);
+                int p = 2 * (i + j * columns);
+                table[p] = (float) result.getX();
+                table[p + 1] = (float) result.getY();
+            }
+        });
+
+        double span = STRETCH * step;
+        IntStream.range(0, rows - 1).parallel().forEach(j -> {
+            for (int i = 0; i < columns - 1; i++) {
+                int p = 2 * (i + j * columns);
+                int q = p + 2 * columns;
+                exact[i + j * (columns - 1)] =
+                        !smooth(table[p], table[p + 2], table[q], table[q + 2], span) ||
+                        !smooth(table[p + 1], table[p + 3], table[q + 1], table[q + 3], span);
+            }
+        });
+    }
+
+    private static boolean smooth(float a, float b, float c, float d, double span) {
+        float min = Math.min(Math.min(a, b), Math.min(c, d));
+        float max = Math.max(Math.max(a, b), Math.max(c, d));
+        return Float.isFinite(min) && Float.isFinite(max) && (max - min) <= span;
+    }
+
+    @Override
+    public Point2D apply(Point2D src) {
+        double gx = (src.getX() - x0) * inverse;
+        double gy = (src.getY() - y0) * inverse;
+        if (!(gx >= 0d && gy >= 0d && gx < columns - 1 && gy < rows - 1)) {
+            return function.apply(src);
+        }
+
+        int i = (int) gx;
+        int j = (int) gy;
+        if (exact[i + j * (columns - 1)]) {
+            return function.apply(src);
+        }
+
+        double tx = gx - i;
+        double ty = gy - j;
+        int p = 2 * (i + j * columns);
+        int q = p + 2 * columns;
+        double ax = table[p] + (table[p + 2] - table[p]) * tx;
+        double ay = table[p + 1] + (table[p + 3] - table[p + 1]) * tx;
+        double bx = table[q] + (table[q + 2] - table[q]) * tx;
+        double by = table[q + 1] + (table[q + 3] - table[q + 1]) * tx;
+
+        return new Point2D.Double(ax + (bx - ax) * ty, ay + (by - ay) * ty);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("function", function)
+                .add("step", step)
+                .toString();
+    }
+
+}
@@ -34,15 +34,14 @@ public class Swirl extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
-        double u = Point2D.distance(0d, 0d, ox / 2d, oy / 2d);
-        double r = Point2D.distance(ox, oy, src.getX(), src.getY()) / u;
-        double x = (src.getX() - ox) / u;
-        double y = (src.getY() - oy) / u;
+        double x = (src.getX() - ox) * iu;
+        double y = (src.getY() - oy) * iu;
+        double r2 = (x * x) + (y * y);
+        double sin = sin(r2);
+        double cos = cos(r2);
 
-        double fx = ox + (u * (x * Math.sin(r * r) - y * Math.cos(r * r)));
-        double fy = oy + (u * (x * Math.cos(r * r) + y * Math.sin(r * r)));
+        double fx = ox + (u * (x * sin - y * cos));
+        double fy = oy + (u * (x * cos + y * sin));
 
         return new Point2D.Double(fx, fy);
     }
@@ -34,15 +34,14 @@ public class Tangent extends CoordinateTransform {
 
     @Override
     public Point2D apply(Point2D src) {
-        double ox = sw / 2d;
-        double oy = sh / 2d;
         double ux = ox / 4d;
         double uy = oy / 4d;
-        double x = (src.getX() - ox) / ux;
-        double y = (src.getY() - oy) / uy;
+        double x = (src.getX() - ox) * rx * 4d;
+        double y = (src.getY() - oy) * ry * 4d;
+        double theta = y * TAU;
 
-        double fx = ox + (ux * Math.sin(x * 2d * Math.PI) / Math.cos(y * 2d * Math.PI));
-        double fy = oy + (uy * Math.tan(y * 2d * Math.PI));
+        double fx = ox + (ux * sin(x * TAU) / cos(theta));
+        double fy = oy + (uy * tan(theta));
 
         return new Point2D.Double(fx, fy);
     }
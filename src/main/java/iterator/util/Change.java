@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.util;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import iterator.model.Function;
+import iterator.model.IFS;
+
+/**
+ * A change to an {@link IFS}, posted through the {@link Notifier}.
+ * <p>
+ * Records which functions were changed and which of their fields, so that
+ * subscribers can update incrementally. A change to the whole IFS, such as
+ * loading a new file or resizing, is marked with {@link Field#ALL}.
+ */
+public final class Change {
+
+    public enum Field {
+        /** Position, size, rotation or matrix. */
+        GEOMETRY,
+        /** Selection weight, which also changes the relative weights of all transforms. */
+        WEIGHT,
+        /** Drawing order. */
+        ORDER,
+        ADDED,
+        REMOVED,
+        /** Anything, including the IFS itself or the configuration. */
+        ALL
+    }
+
+    private final IFS ifs;
+    private final Set<Function> functions;
+    private final Set<Field> fields;
+
+    private Change(IFS ifs, Set<Function> functions, Set<Field> fields) {
+        this.ifs = ifs;
+        this.functions = functions;
+        this.fields = fields;
+    }
+
+    /** A change to the whole IFS. */
+    public static Change of(IFS ifs) {
+        return new Change(ifs, ImmutableSet.of(), ImmutableSet.of(Field.ALL));
+    }
+
+    /** A change to some fields of a single function. */
+    public static Change of(IFS ifs, Function function, Field...fields) {
+        return new Change(ifs, ImmutableSet.of(function), ImmutableSet.copyOf(Arrays.asList(fields)));
+    }
+
+    /**
+     * Merges a later change with this one.
+     * <p>
+     * If the later change is for a different IFS it replaces this one
+     * entirely, otherwise the changed functions and fields are combined.
+     */
+    public Change merge(Change next) {
+        if (next.ifs != ifs) {
+            return Change.of(next.ifs);
+        }
+        if (isAll() || next.isAll()) {
+            return Change.of(ifs);
+        }
+        return new Change(ifs,
+                ImmutableSet.copyOf(Sets.union(functions, next.functions)),
+                ImmutableSet.copyOf(Sets.union(fields, next.fields)));
+    }
+
+    public IFS getIFS() { return ifs; }
+
+    public Set<Function> getFunctions() { return functions; }
+
+    public Set<Field> getFields() { return fields; }
+
+    public boolean isAll() { return fields.contains(Field.ALL); }
+
+    /** Whether any of the fields changed, including by a change to everything. */
+    public boolean contains(Field...any) {
+        return isAll() || Arrays.stream(any).anyMatch(fields::contains);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("ifs", ifs.getName())
+                .add("functions", functions.size())
+                .add("fields", fields)
+                .toString();
+    }
+
+}
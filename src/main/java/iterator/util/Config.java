@@ -63,6 +63,7 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Predicates;
 import com.google.common.base.StandardSystemProperty;
 import com.google.common.collect.ForwardingSortedMap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -92,14 +93,23 @@ public class Config extends ForwardingSortedMap<String, String> {
     public static final String CONFIG_OPTION_LONG = "--config";
     public static final String OUTPUT_OPTION = "-o";
     public static final String OUTPUT_OPTION_LONG = "--output";
+    public static final String FIT_OPTION = "-z";
+    public static final String FIT_OPTION_LONG = "--fit";
 
     public static final String PROPERTIES_FILE = "explorer.properties";
 
     public static final String EXPLORER_PROPERTY = "explorer";
     public static final String MODE_PROPERTY = EXPLORER_PROPERTY + ".mode";
     public static final String RENDER_PROPERTY = EXPLORER_PROPERTY + ".render";
+    public static final String ENGINE_PROPERTY = EXPLORER_PROPERTY + ".engine";
+    public static final String ENGINE_COMPOSE_PROPERTY = ENGINE_PROPERTY + ".compose";
+    public static final String ENGINE_FLOAT_PROPERTY = ENGINE_PROPERTY + ".float";
+    public static final String ENGINE_SAMPLING_PROPERTY = ENGINE_PROPERTY + ".sampling";
     public static final String TRANSFORM_PROPERTY = EXPLORER_PROPERTY + ".transform";
+    public static final String TRANSFORM_LOOKUP_PROPERTY = TRANSFORM_PROPERTY + ".lookup";
+    public static final String TRANSFORM_FAST_PROPERTY = TRANSFORM_PROPERTY + ".fast";
     public static final String REVERSE_ORDER_PROPERTY = EXPLORER_PROPERTY + ".reverse";
+    public static final String SYMMETRY_PROPERTY = EXPLORER_PROPERTY + ".symmetry";
     public static final String GAMMA_PROPERTY = EXPLORER_PROPERTY + ".gamma";
     public static final String VIBRANCY_PROPERTY = EXPLORER_PROPERTY + ".vibrancy";
     public static final String VIBRANCY_LIMIT_PROPERTY = VIBRANCY_PROPERTY + ".limit";
@@ -128,10 +138,20 @@ public class Config extends ForwardingSortedMap<String, String> {
     public static final String ITERATIONS_PROPERTY = EXPLORER_PROPERTY + ".iterations";
     public static final String ITERATIONS_LIMIT_PROPERTY = ITERATIONS_PROPERTY + ".limit";
     public static final String ITERATIONS_UNLIMITED_PROPERTY = ITERATIONS_PROPERTY + ".unlimited";
+    public static final String CACHE_PROPERTY = EXPLORER_PROPERTY + ".cache";
+    public static final String PREVIEW_PROPERTY = EXPLORER_PROPERTY + ".preview";
+    public static final String PREVIEW_BUDGET_PROPERTY = PREVIEW_PROPERTY + ".budget";
+    public static final String PREVIEW_DRAFT_PROPERTY = PREVIEW_PROPERTY + ".draft";
+    public static final String PREVIEW_IDLE_PROPERTY = PREVIEW_PROPERTY + ".idle";
 
     public static final Mode DEFAULT_MODE = Mode.GRAY;
     public static final Render DEFAULT_RENDER = Render.STANDARD;
+    public static final Engine DEFAULT_ENGINE = Engine.CHAOS_GAME;
+    public static final Sampling DEFAULT_ENGINE_SAMPLING = Sampling.RANDOM;
     public static final CoordinateTransform.Type DEFAULT_TRANSFORM = CoordinateTransform.Type.IDENTITY;
+    public static final Integer DEFAULT_TRANSFORM_LOOKUP = 0; // px
+    public static final Boolean DEFAULT_TRANSFORM_FAST = false;
+    public static final Boolean DEFAULT_ENGINE_FLOAT = false;
     public static final Float DEFAULT_GAMMA = 1.8f;
     public static final Float DEFAULT_VIBRANCY = 0.9f;
     public static final Float DEFAULT_VIBRANCY_LIMIT = 0.9f;
@@ -153,11 +173,19 @@ public class Config extends ForwardingSortedMap<String, String> {
     public static final Double DEFAULT_DISPLAY_CENTRE_Y = 0.5d;
     public static final Long DEFAULT_ITERATIONS = 10_000L;
     public static final Long DEFAULT_ITERATIONS_LIMIT = 10_000_000L;
+    public static final Integer DEFAULT_CACHE_SIZE = 256; // MiB
+    public static final Long DEFAULT_PREVIEW_BUDGET = 40L; // ms
+    public static final Integer DEFAULT_PREVIEW_DRAFT = 2;
+    public static final Integer DEFAULT_PREVIEW_IDLE = 200; // ms
     public static final Integer MIN_WINDOW_SIZE = 400; // Details view requires 350px
     public static final Integer MIN_THREADS = 2;
     public static final Boolean DEFAULT_DEBUG = false;
     public static final Boolean DEFAULT_ITERATIONS_UNLIMITED = true;
     public static final Boolean DEFAULT_REVERSE_ORDER = false;
+    public static final Integer DEFAULT_SYMMETRY = 1;
+    public static final Integer MAX_SYMMETRY = 24;
+    public static final Integer DEFAULT_ENGINE_COMPOSE = 1;
+    public static final Integer MAX_ENGINE_COMPOSE = 3;
 
     public static final List<String> FOOTER = Arrays.asList(
             "#",
@@ -238,8 +266,79 @@ public class Config extends ForwardingSortedMap<String, String> {
         }
     }
 
+    /**
+     * The algorithm used to render the attractor.
+     * <p>
+     * The chaos game follows random points onto the attractor. Subdivision
+     * visits the tree of function compositions depth first, skipping any
+     * branch whose image lies outside the viewport, and plotting each branch
+     * once its image is less than half a pixel across. It only applies to contractive
+     * affine functions, so otherwise the chaos game is used.
+     */
+    public enum Engine {
+        CHAOS_GAME,
+        SUBDIVISION;
+
+        @Override
+        public String toString() {
+            return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_HYPHEN, name());
+        }
+    }
+
+    /**
+     * How the chaos game chooses the function for each plotted point.
+     * <p>
+     * Random sampling plots the walker itself. Quasi-random sampling moves
+     * the walker with a random choice as before, but plots its image under
+     * a composition of functions chosen from a golden ratio sequence,
+     * randomly offset for each walker. The longest compositions that fit in
+     * a table are used, or the visible prefixes when zoomed in, so the points
+     * are divided between small pieces of the attractor in proportion to
+     * their weights, with much less clumping. The walker keeps its random
+     * choices, since a deterministic sequence would only visit part of the
+     * attractor.
+     */
+    public enum Sampling {
+        RANDOM,
+        QUASI_RANDOM;
+
+        @Override
+        public String toString() {
+            return CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_HYPHEN, name());
+        }
+    }
+
     public static final Predicate<CharSequence> EXPLORER_KEYS = Predicates.containsPattern("^" + EXPLORER_PROPERTY + ".");
 
+    /**
+     * The settings that change the rendered image, with the getters for
+     * their effective values. Any new setting that affects rendering must
+     * be added here, so that cached viewports are keyed on it.
+     */
+    private static final Map<String, java.util.function.Function<Config, Object>> RENDER_SETTINGS =
+            ImmutableMap.<String, java.util.function.Function<Config, Object>>builder()
+                    .put(MODE_PROPERTY, Config::getMode)
+                    .put(RENDER_PROPERTY, Config::getRender)
+                    .put(ENGINE_PROPERTY, Config::getEngine)
+                    .put(ENGINE_COMPOSE_PROPERTY, Config::getEngineCompose)
+                    .put(ENGINE_FLOAT_PROPERTY, Config::isEngineFloat)
+                    .put(ENGINE_SAMPLING_PROPERTY, Config::getEngineSampling)
+                    .put(TRANSFORM_PROPERTY, Config::getCoordinateTransformType)
+                    .put(TRANSFORM_LOOKUP_PROPERTY, Config::getTransformLookup)
+                    .put(TRANSFORM_FAST_PROPERTY, Config::isTransformFast)
+                    .put(REVERSE_ORDER_PROPERTY, Config::isReverseOrder)
+                    .put(SYMMETRY_PROPERTY, Config::getSymmetry)
+                    .put(GAMMA_PROPERTY, Config::getGamma)
+                    .put(VIBRANCY_PROPERTY, Config::getVibrancy)
+                    .put(VIBRANCY_LIMIT_PROPERTY, Config::getVibrancyLimit)
+                    .put(BLUR_KERNEL_PROPERTY, Config::getBlurKernel)
+                    .put(GRADIENT_START_PROPERTY, Config::getGradientStart)
+                    .put(GRADIENT_END_PROPERTY, Config::getGradientEnd)
+                    .put(PALETTE_SEED_PROPERTY, Config::getSeed)
+                    .put(PALETTE_FILE_PROPERTY, Config::getPaletteFile)
+                    .put(PALETTE_SIZE_PROPERTY, Config::getPaletteSize)
+                    .build();
+
     private final Optional<Path> override;
     private final SortedMap<String, String> config;
 
@@ -257,6 +356,13 @@ public class Config extends ForwardingSortedMap<String, String> {
         return instance;
     }
 
+    /** The effective values of every setting that changes the rendered image, including defaults. */
+    public SortedMap<String, String> getRenderSettings() {
+        SortedMap<String, String> settings = Maps.newTreeMap();
+        RENDER_SETTINGS.forEach((key, getter) -> settings.put(key, String.valueOf(getter.apply(this))));
+        return settings;
+    }
+
     public SortedMap<String, String> copyOf() {
         return ImmutableSortedMap.copyOfSorted(this);
     }
@@ -460,6 +566,16 @@ public class Config extends ForwardingSortedMap<String, String> {
 
     public Render getRender() { return get(RENDER_PROPERTY, DEFAULT_RENDER); }
 
+    public void setEngine(Engine value) { set(ENGINE_PROPERTY, value); }
+
+    public Engine getEngine() { return get(ENGINE_PROPERTY, DEFAULT_ENGINE); }
+
+    public int getEngineCompose() { return Math.max(1, Math.min(MAX_ENGINE_COMPOSE, get(ENGINE_COMPOSE_PROPERTY, DEFAULT_ENGINE_COMPOSE))); }
+
+    public boolean isEngineFloat() { return get(ENGINE_FLOAT_PROPERTY, DEFAULT_ENGINE_FLOAT); }
+
+    public Sampling getEngineSampling() { return get(ENGINE_SAMPLING_PROPERTY, DEFAULT_ENGINE_SAMPLING); }
+
     public void setMode(Mode value) { set(MODE_PROPERTY, value); }
 
     public Mode getMode() { return get(MODE_PROPERTY, DEFAULT_MODE); }
@@ -468,12 +584,16 @@ public class Config extends ForwardingSortedMap<String, String> {
 
     public CoordinateTransform.Type getCoordinateTransformType() { return get(TRANSFORM_PROPERTY, DEFAULT_TRANSFORM); }
 
-    public CoordinateTransform getCoordinateTransform() { return getCoordinateTransformType().getFunction(); }
+    public int getTransformLookup() { return Math.max(0, get(TRANSFORM_LOOKUP_PROPERTY, DEFAULT_TRANSFORM_LOOKUP)); }
+
+    public boolean isTransformFast() { return get(TRANSFORM_FAST_PROPERTY, DEFAULT_TRANSFORM_FAST); }
 
     public void setReverseOrder(boolean value) { set(REVERSE_ORDER_PROPERTY, value); }
 
     public boolean isReverseOrder() { return get(REVERSE_ORDER_PROPERTY, DEFAULT_REVERSE_ORDER); }
 
+    public int getSymmetry() { return Math.max(1, Math.min(MAX_SYMMETRY, get(SYMMETRY_PROPERTY, DEFAULT_SYMMETRY))); }
+
     public void setGamma(float value) { set(GAMMA_PROPERTY, value); }
 
     public float getGamma() { return get(GAMMA_PROPERTY, DEFAULT_GAMMA); }
@@ -506,6 +626,14 @@ public class Config extends ForwardingSortedMap<String, String> {
 
     public boolean isIterationsUnlimited() { return get(ITERATIONS_UNLIMITED_PROPERTY, DEFAULT_ITERATIONS_UNLIMITED); }
 
+    public int getCacheSize() { return get(CACHE_PROPERTY, DEFAULT_CACHE_SIZE); }
+
+    public long getPreviewBudget() { return get(PREVIEW_BUDGET_PROPERTY, DEFAULT_PREVIEW_BUDGET); }
+
+    public int getPreviewDraft() { return Math.max(1, get(PREVIEW_DRAFT_PROPERTY, DEFAULT_PREVIEW_DRAFT)); }
+
+    public int getPreviewIdle() { return get(PREVIEW_IDLE_PROPERTY, DEFAULT_PREVIEW_IDLE); }
+
     public int getMinGrid() { return get(GRID_MIN_PROPERTY, DEFAULT_GRID_MIN); }
 
     public int getMaxGrid() { return get(GRID_MAX_PROPERTY, DEFAULT_GRID_MAX); }
@@ -62,6 +62,7 @@ public class Messages {
     public static final String MENU_EDITOR_NEW_REFLECTION = "explorer.menu.editor.new.reflection";
 
     public static final String MENU_VIEWER_ZOOM = "explorer.menu.viewer.zoom";
+    public static final String MENU_VIEWER_FIT = "explorer.menu.viewer.fit";
     public static final String MENU_VIEWER_PAUSE = "explorer.menu.viewer.pause";
     public static final String MENU_VIEWER_RESUME = "explorer.menu.viewer.resume";
     public static final String MENU_VIEWER_GRID = "explorer.menu.viewer.grid";
@@ -93,6 +94,7 @@ public class Messages {
     public static final String DIALOG_PREFERENCES_TITLE = "explorer.dialog.preferences.title";
     public static final String DIALOG_PREFERENCES_MODE = "explorer.dialog.preferences.mode";
     public static final String DIALOG_PREFERENCES_RENDER = "explorer.dialog.preferences.render";
+    public static final String DIALOG_PREFERENCES_ENGINE = "explorer.dialog.preferences.engine";
     public static final String DIALOG_PREFERENCES_TRANSFORM = "explorer.dialog.preferences.transform";
     public static final String DIALOG_PREFERENCES_REVERSE = "explorer.dialog.preferences.reverse";
     public static final String DIALOG_PREFERENCES_GRADIENT_COLOUR = "explorer.dialog.preferences.gradient.colour";
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.util;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.Timer;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.util.concurrent.Atomics;
+
+import iterator.model.Function;
+import iterator.model.IFS;
+import iterator.util.Change.Field;
+
+/**
+ * Coalescing channel for {@link Change} events.
+ * <p>
+ * Changes posted during a frame are merged, and delivered once to the
+ * {@link EventBus} subscribers on the EDT when the frame timer fires.
+ */
+public class Notifier implements ActionListener {
+
+    /** Frame interval in milliseconds. */
+    public static final int FRAME = 16;
+
+    private final EventBus bus;
+    private final Timer timer;
+    private final AtomicReference<Change> pending = Atomics.newReference();
+
+    public Notifier(EventBus bus) {
+        this.bus = bus;
+        this.timer = new Timer(FRAME, this);
+        this.timer.setRepeats(false);
+    }
+
+    /** Posts a change to the whole IFS. */
+    public void post(IFS ifs) {
+        post(Change.of(ifs));
+    }
+
+    /** Posts a change to some fields of a single function. */
+    public void post(IFS ifs, Function function, Field...fields) {
+        post(Change.of(ifs, function, fields));
+    }
+
+    public void post(Change change) {
+        pending.accumulateAndGet(change, (p, c) -> p == null ? c : p.merge(c));
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Delivers the pending change when the frame timer fires.
+     *
+     * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
+     */
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        Change change = pending.getAndSet(null);
+        if (change != null) {
+            bus.post(change);
+        }
+    }
+
+}
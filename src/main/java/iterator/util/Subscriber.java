@@ -32,6 +32,16 @@ public interface Subscriber {
     /** Callback for the IFS changes. */
     void updated(IFS ifs);
 
+    /**
+     * Callback for coalesced IFS changes from the {@link Notifier}.
+     * <p>
+     * By default this treats every change as a complete update.
+     */
+    @Subscribe
+    default void changed(Change change) {
+        updated(change.getIFS());
+    }
+
     /** Callback for display size changes. */
     void resized(Dimension size);
 
@@ -23,24 +23,38 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JTextPane;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.html.HTMLDocument;
 import javax.swing.text.html.HTMLEditorKit;
 import javax.swing.text.html.StyleSheet;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.base.CharMatcher;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import iterator.Explorer;
+import iterator.model.Function;
 import iterator.model.IFS;
 import iterator.model.Reflection;
 import iterator.model.Transform;
+import iterator.util.Change;
+import iterator.util.Change.Field;
 import iterator.util.Config;
 import iterator.util.Formatter;
 import iterator.util.Formatter.DoubleFormatter;
@@ -48,11 +62,18 @@ import iterator.util.Subscriber;
 
 /**
  * Detail display.
+ * <p>
+ * The HTML for each function is cached, and the document is built and parsed
+ * on a background thread, so that editing a large IFS does not block the EDT.
  */
 public class Details extends JTextPane implements Printable, Subscriber {
 
     private final Explorer controller;
     private final Config config;
+    private final HTMLEditorKit kit;
+    private final ExecutorService builder;
+    private final AtomicLong generation = new AtomicLong(0L);
+    private final Map<Function, String> fragments = Maps.newConcurrentMap();
 
     private IFS ifs;
 
@@ -83,12 +104,17 @@ public class Details extends JTextPane implements Printable, Subscriber {
         setEditable(false);
         setContentType(HTML_MIME_TYPE);
         setText(INITIAL_CONTENT_HTML);
-        HTMLEditorKit kit = (HTMLEditorKit) getEditorKitForContentType(HTML_MIME_TYPE);
+        kit = (HTMLEditorKit) getEditorKitForContentType(HTML_MIME_TYPE);
         StyleSheet css = kit.getStyleSheet();
         for (String rule : Iterables.concat(CSS_RULES, CSS_BRACKET_RULES)) {
             css.addRule(rule);
         }
 
+        builder = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("details")
+                .setDaemon(true)
+                .build());
+
         controller.getEventBus().register(this);
     }
 
@@ -105,113 +131,119 @@ public class Details extends JTextPane implements Printable, Subscriber {
 
     /** @see Subscriber#updated(IFS) */
     @Override
-    @Subscribe
     public void updated(IFS ifs) {
         this.ifs = ifs;
 
         setDetails();
     }
 
+    /**
+     * Only the fragments for the changed functions are rebuilt, unless the
+     * change affects the weights or colours of every function.
+     *
+     * @see Subscriber#changed(Change)
+     */
+    @Override
+    @Subscribe
+    public void changed(Change change) {
+        this.ifs = change.getIFS();
+
+        if (change.contains(Field.WEIGHT, Field.ADDED, Field.REMOVED)) {
+            fragments.clear();
+        } else {
+            change.getFunctions().forEach(fragments::remove);
+        }
+
+        schedule();
+    }
+
+    /** Rebuilds the details for every function. */
     public void setDetails() {
+        fragments.clear();
+
+        schedule();
+    }
+
+    /**
+     * Copies the IFS on the EDT and builds the HTML document on the
+     * background thread. Only the latest document is displayed.
+     */
+    private void schedule() {
+        if (ifs == null) return;
+
+        String name = Optional.ofNullable(ifs.getName()).orElse(IFS.UNTITLED);
+        List<Transform> transforms = Ordering.from(IFS.IDENTITY).immutableSortedCopy(
+                Iterables.transform(ifs.getTransforms(), Transform::clone));
+        List<Reflection> reflections = Ordering.from(IFS.IDENTITY).immutableSortedCopy(
+                Iterables.transform(ifs.getReflections(), r -> {
+                    Reflection copy = Reflection.copy(r);
+                    copy.setId(r.getId());
+                    return copy;
+                }));
+        int columns = Math.max(1, controller.getWidth() / 380);
+
+        long token = generation.incrementAndGet();
+        builder.submit(() -> {
+            if (token != generation.get()) return;
+
+            try {
+                String html = build(name, transforms, reflections, columns);
+                HTMLDocument document = (HTMLDocument) kit.createDefaultDocument();
+                kit.read(new StringReader(html), document, 0);
+
+                SwingUtilities.invokeLater(() -> {
+                    if (token != generation.get()) return;
+
+                    setDocument(document);
+
+                    repaint();
+
+                    scrollToReference("top");
+                });
+            } catch (IOException | BadLocationException | RuntimeException e) {
+                controller.accept(e, "Details failed");
+            }
+        });
+    }
+
+    private String build(String name, List<Transform> transforms, List<Reflection> reflections, int columns) {
         StringBuilder html = new StringBuilder("<html>");
-        String name = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, Optional.ofNullable(ifs.getName()).orElse(IFS.UNTITLED));
-        String words = CharMatcher.javaLetterOrDigit().negate().replaceFrom(name, ' ');
+        String title = CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_CAMEL, name);
+        String words = CharMatcher.javaLetterOrDigit().negate().replaceFrom(title, ' ');
         html.append("<a name=\"top\"></a>")
             .append(String.format("<h1 id=\"title\">IFS %s</h1>", words));
 
-        if (ifs.getTransforms().isEmpty()) {
+        if (transforms.isEmpty()) {
             html.append("<h2>Empty</h2>");
         } else {
-            DoubleFormatter four = Formatter.doubles(4);
-            DoubleFormatter one = Formatter.doubles(1);
-            DoubleFormatter zero = Formatter.doubles(0);
+            int size = transforms.size() + reflections.size();
+            double total = weight(transforms);
 
-            int columns = controller.getWidth() / 380;
             html.append("<table>")
                 .append("<tr><td><h2>Transforms</h2></td></tr>");
             int i = 0, f = 0;
-            for (Transform t : Ordering.from(IFS.IDENTITY).immutableSortedCopy(ifs.getTransforms())) {
+            for (Transform t : transforms) {
+                int index = f;
                 if (i % columns == 0) html.append("<tr>");
                 html.append("<td>")
-                    .append("<table class=\"ifs\">");
-
-                double[] matrix = new double[6];
-                t.getTransform().getMatrix(matrix);
-
-                Color c = Color.WHITE;
-                if (config.getMode().isColour()) {
-                    if (config.getMode().isPalette()) {
-                        c = Iterables.get(config.getColours(), f % config.getColours().size());
-                    } else {
-                        c = Color.getHSBColor((float) f / (float) ifs.size(), 0.8f, 0.8f);
-                    }
-                }
-
-                String transform = String.format(
-                        "<tr class=\"transform\">" +
-                            "<td class=\"id\" width=\"50px\">%02d</td>" +
-                            "<td class=\"bracketl\" rowspan=\"2\">&nbsp;</td>" +
-                            "<td class=\"matrixr1\" align=\"right\">%s</td>" +
-                            "<td class=\"matrixr1\" align=\"right\">%s</td>" +
-                            "<td class=\"matrixr1\" align=\"right\">%s</td>" +
-                            "<td class=\"bracketr\" rowspan=\"2\">&nbsp;</td>" +
-                        "</tr>" +
-                        "<tr class=\"transform\">" +
-                            "<td class=\"info\" width=\"50px\">%.1f%%" +
-                                "<div style=\"width: 15px; height: 10px; border: 1px solid %s; " +
-                                "background: #%02x%02x%02x; padding: 0; margin: 0;\">&nbsp;</div>" +
-                            "</td>" +
-                            "<td class=\"matrixr2\" align=\"right\">%s</td>" +
-                            "<td class=\"matrixr2\" align=\"right\">%s</td>" +
-                            "<td class=\"matrixr2\" align=\"right\">%s</td>" +
-                        "</tr>" +
-                        "<tr class=\"space\"><td colspan=\"6\">&nbsp;</td></tr>",
-                        t.getId(),
-                        four.toString(matrix[0]), four.toString(matrix[2]), zero.toString(matrix[4]),
-                        100d * t.getWeight() / weight(ifs.getTransforms()),
-                        config.getMode().isColour() ? "black" : "white",
-                        c.getRed(), c.getGreen(), c.getBlue(),
-                        four.toString(matrix[1]), four.toString(matrix[2]), zero.toString(matrix[5]));
-                html.append(transform)
+                    .append("<table class=\"ifs\">")
+                    .append(fragments.computeIfAbsent(t, k -> transform(t, index, size, total)))
                     .append("</table>")
                     .append("</td>");
                 i++; f++;
                 if (i % columns == 0) html.append("</tr>");
             }
 
-            if (ifs.getReflections().size() > 0) {
+            if (reflections.size() > 0) {
                 if (i % columns != 0) html.append("</tr>");
                 html.append("<tr><td><h2>Reflections</h2></td></tr>");
                 i = 0;
-                for (Reflection r : Ordering.from(IFS.IDENTITY).immutableSortedCopy(ifs.getReflections())) {
+                for (Reflection r : reflections) {
+                    int index = f;
                     if (i % columns == 0) html.append("<tr>");
                     html.append("<td>")
-                        .append("<table class=\"ifs\">");
-
-                    Color c = Color.WHITE;
-                    if (config.getMode().isColour()) {
-                        if (config.getMode().isPalette()) {
-                            c = Iterables.get(config.getColours(), f % config.getColours().size());
-                        } else {
-                            c = Color.getHSBColor((float) f / (float) ifs.size(), 0.8f, 0.8f);
-                        }
-                    }
-
-                    String reflection = String.format(
-                            "<tr class=\"reflection\">" +
-                                "<td class=\"id\" width=\"50px\">%02d" +
-                                    "<div style=\"width: 15px; height: 10px; border: 1px solid %s; " +
-                                    "background: #%02x%02x%02x; padding: 0; margin: 0;\">&nbsp;</div>" +
-                                "</td>" +
-                                "<td class=\"reflect\" align=\"right\" colspan=\"3\">(%s,&nbsp;%s)</td>" +
-                                "<td class=\"reflect\" align=\"right\" colspan=\"2\">%s&nbsp;°</td>" +
-                            "</tr>" +
-                            "<tr class=\"space\"><td colspan=\"6\">&nbsp;</td></tr>",
-                            r.getId(),
-                            config.getMode().isColour() ? "black" : "white",
-                            c.getRed(), c.getGreen(), c.getBlue(),
-                            r.x, r.y, one.toString(Math.toDegrees(r.r)));
-                    html.append(reflection)
+                        .append("<table class=\"ifs\">")
+                        .append(fragments.computeIfAbsent(r, k -> reflection(r, index, size)))
                         .append("</table>")
                         .append("</td>");
                     i++; f++;
@@ -223,11 +255,76 @@ public class Details extends JTextPane implements Printable, Subscriber {
         }
 
         html.append("</html>");
-        setText(html.toString());
+        return html.toString();
+    }
+
+    private Color colour(int f, int size) {
+        Color c = Color.WHITE;
+        if (config.getMode().isColour()) {
+            if (config.getMode().isPalette()) {
+                c = Iterables.get(config.getColours(), f % config.getColours().size());
+            } else {
+                c = Color.getHSBColor((float) f / (float) size, 0.8f, 0.8f);
+            }
+        }
+        return c;
+    }
 
-        repaint();
+    private String transform(Transform t, int f, int size, double total) {
+        DoubleFormatter four = Formatter.doubles(4);
+        DoubleFormatter zero = Formatter.doubles(0);
+
+        double[] matrix = new double[6];
+        t.getTransform().getMatrix(matrix);
+
+        Color c = colour(f, size);
+
+        return String.format(
+                "<tr class=\"transform\">" +
+                    "<td class=\"id\" width=\"50px\">%02d</td>" +
+                    "<td class=\"bracketl\" rowspan=\"2\">&nbsp;</td>" +
+                    "<td class=\"matrixr1\" align=\"right\">%s</td>" +
+                    "<td class=\"matrixr1\" align=\"right\">%s</td>" +
+                    "<td class=\"matrixr1\" align=\"right\">%s</td>" +
+                    "<td class=\"bracketr\" rowspan=\"2\">&nbsp;</td>" +
+                "</tr>" +
+                "<tr class=\"transform\">" +
+                    "<td class=\"info\" width=\"50px\">%.1f%%" +
+                        "<div style=\"width: 15px; height: 10px; border: 1px solid %s; " +
+                        "background: #%02x%02x%02x; padding: 0; margin: 0;\">&nbsp;</div>" +
+                    "</td>" +
+                    "<td class=\"matrixr2\" align=\"right\">%s</td>" +
+                    "<td class=\"matrixr2\" align=\"right\">%s</td>" +
+                    "<td class=\"matrixr2\" align=\"right\">%s</td>" +
+                "</tr>" +
+                "<tr class=\"space\"><td colspan=\"6\">&nbsp;</td></tr>",
+                t.getId(),
+                four.toString(matrix[0]), four.toString(matrix[2]), zero.toString(matrix[4]),
+                100d * t.getWeight() / total,
+                config.getMode().isColour() ? "black" : "white",
+                c.getRed(), c.getGreen(), c.getBlue(),
+                four.toString(matrix[1]), four.toString(matrix[2]), zero.toString(matrix[5]));
+    }
 
-        scrollToReference("top");
+    private String reflection(Reflection r, int f, int size) {
+        DoubleFormatter one = Formatter.doubles(1);
+
+        Color c = colour(f, size);
+
+        return String.format(
+                "<tr class=\"reflection\">" +
+                    "<td class=\"id\" width=\"50px\">%02d" +
+                        "<div style=\"width: 15px; height: 10px; border: 1px solid %s; " +
+                        "background: #%02x%02x%02x; padding: 0; margin: 0;\">&nbsp;</div>" +
+                    "</td>" +
+                    "<td class=\"reflect\" align=\"right\" colspan=\"3\">(%s,&nbsp;%s)</td>" +
+                    "<td class=\"reflect\" align=\"right\" colspan=\"2\">%s&nbsp;°</td>" +
+                "</tr>" +
+                "<tr class=\"space\"><td colspan=\"6\">&nbsp;</td></tr>",
+                r.getId(),
+                config.getMode().isColour() ? "black" : "white",
+                c.getRed(), c.getGreen(), c.getBlue(),
+                r.x, r.y, one.toString(Math.toDegrees(r.r)));
     }
 
     /** @see java.awt.print.Printable#print(Graphics, PageFormat, int) */
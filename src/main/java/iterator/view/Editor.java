@@ -61,11 +61,9 @@ import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
@@ -74,7 +72,6 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.event.MouseInputListener;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Ordering;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
@@ -83,17 +80,16 @@ import com.google.common.primitives.Ints;
 import iterator.Explorer;
 import iterator.dialog.Matrix;
 import iterator.dialog.Properties;
-import iterator.model.Function;
 import iterator.model.IFS;
 import iterator.model.Reflection;
 import iterator.model.Transform;
-import iterator.model.functions.CoordinateTransform;
 import iterator.util.Config;
-import iterator.util.Config.Render;
 import iterator.util.Dialog;
 import iterator.util.Formatter;
 import iterator.util.Formatter.DoubleFormatter;
+import iterator.util.Change.Field;
 import iterator.util.Messages;
+import iterator.util.Notifier;
 import iterator.util.Subscriber;
 
 /**
@@ -102,15 +98,16 @@ import iterator.util.Subscriber;
 public class Editor extends JPanel implements MouseInputListener, KeyListener, ActionListener, Subscriber {
 
     private final EventBus bus;
+    private final Notifier notifier;
     private final Explorer controller;
     private final Config config;
-    private final Iterator iterator;
+    private final Preview preview;
+    private final Index index = new Index();
 
     private JPopupMenu transformMenu, reflectionMenu, editor;
     private JMenuItem properties;
 
-    private Timer timer;
-    private BufferedImage image;
+    private Timer timer, idle;
     private IFS ifs;
     private Reflection reflection;
     private Transform selected;
@@ -123,13 +120,18 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
 
         this.controller = controller;
         this.bus = controller.getEventBus();
+        this.notifier = controller.getNotifier();
         Messages messages = controller.getMessages();
         this.config = controller.getConfig();
-        this.iterator = controller.getIterator();
+        this.preview = new Preview(controller, this::repaint);
 
-        timer = new Timer(100, this);
+        timer = new Timer(50, this);
         timer.setCoalesce(true);
 
+        // Return to full quality preview when the mouse stops moving
+        idle = new Timer(config.getPreviewIdle(), e -> preview.setDraft(false));
+        idle.setRepeats(false);
+
         transformMenu = new JPopupMenu();
         properties = menuItem(messages.getText(MENU_TRANSFORM_PROPERTIES),
                 e -> Dialog.show(Properties.dialog(controller, selected, ifs), controller));
@@ -138,8 +140,8 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                 e -> Dialog.show(Matrix.dialog(controller, selected, ifs), controller)));
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_DELETE), e -> {
             ifs.getTransforms().remove(selected);
+            notifier.post(ifs, selected, Field.REMOVED);
             selected = null;
-            bus.post(ifs);
         }));
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_DUPLICATE), e -> {
             Transform copy = Transform.create(getSize());
@@ -156,26 +158,26 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
             }
             ifs.add(copy);
             selected = copy;
-            bus.post(ifs);
+            notifier.post(ifs, copy, Field.ADDED);
         }));
         JMenuItem separator = new JMenuItem("-");
         separator.setEnabled(false);
         transformMenu.add(separator);
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_RAISE), e -> {
             selected.setZIndex(selected.getZIndex() + 1);
-            bus.post(ifs);
+            notifier.post(ifs, selected, Field.ORDER);
         }));
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_LOWER), e -> {
             selected.setZIndex(selected.getZIndex() - 1);
-            bus.post(ifs);
+            notifier.post(ifs, selected, Field.ORDER);
         }));
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_FRONT), e -> {
             selected.setZIndex(Ordering.from(IFS.Z_ORDER).max(ifs.getTransforms()).getZIndex() + 1);
-            bus.post(ifs);
+            notifier.post(ifs, selected, Field.ORDER);
         }));
         transformMenu.add(menuItem(messages.getText(MENU_TRANSFORM_BACK), e -> {
             selected.setZIndex(Ordering.from(IFS.Z_ORDER).min(ifs.getTransforms()).getZIndex() - 1);
-            bus.post(ifs);
+            notifier.post(ifs, selected, Field.ORDER);
         }));
         add(transformMenu);
 
@@ -184,15 +186,15 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                 e -> Dialog.show(Properties.dialog(controller, reflection, ifs), controller)));
         reflectionMenu.add(menuItem(messages.getText(MENU_REFLECTION_DELETE), e -> {
             ifs.getReflections().remove(reflection);
+            notifier.post(ifs, reflection, Field.REMOVED);
             reflection = null;
-            bus.post(ifs);
         }));
         add(reflectionMenu);
 
         editor = new JPopupMenu();
         editor.add(menuItem(messages.getText(MENU_EDITOR_NEW_IFS), e -> {
             IFS untitled = new IFS();
-            bus.post(untitled);
+            notifier.post(untitled);
             resetImage();
         }));
         editor.add(menuItem(messages.getText(MENU_EDITOR_NEW_TRANSFORM), e -> {
@@ -206,7 +208,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
             t.r = 0d;
             ifs.add(t);
             selected = t;
-            bus.post(ifs);
+            notifier.post(ifs, t, Field.ADDED);
         }));
         editor.add(menuItem(messages.getText(MENU_EDITOR_NEW_REFLECTION), e -> {
             Reflection r = Reflection.create(getSize());
@@ -215,7 +217,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
             r.y = origin;
             r.r = 0d;
             ifs.add(r);
-            bus.post(ifs);
+            notifier.post(ifs, r, Field.ADDED);
         }));
         add(editor);
 
@@ -264,7 +266,6 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
 
     /** @see Subscriber#updated(IFS) */
     @Override
-    @Subscribe
     public void updated(IFS ifs) {
         this.ifs = ifs;
         this.start = null;
@@ -276,6 +277,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
             this.selected = null;
         }
         this.reflection = null;
+        index.sync(ifs.getTransforms(), getSize());
 
         setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
 
@@ -287,32 +289,18 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     @Subscribe
     public void resized(Dimension size) {
         ifs.setSize(size);
-        bus.post(ifs);
+        notifier.post(ifs);
     }
 
     /**
-     * Invoked when the timer fires, to refresh the image when rendering.
+     * Invoked when the timer fires, to start a new preview if the IFS has changed.
      *
      * @see java.awt.event.ActionListener#actionPerformed(java.awt.event.ActionEvent)
      */
     @Override
     public void actionPerformed(ActionEvent e) {
         if (isVisible() && ifs.size() > 0) {
-            long n = getTransforms().size();
-            long m = getReflections().size() + 1;
-            long k = Math.min(1_000_000, 50_000 * (long) Math.pow(2d, n * m));
-            k *= (config.getCoordinateTransformType() == CoordinateTransform.Type.IDENTITY ? 1 : 2);
-
-            List<Function> functions = ImmutableList.<Function>builder()
-                    .addAll(getTransforms())
-                    .addAll(getReflections())
-                    .build();
-
-            resetImage();
-            iterator.reset(getSize());
-            iterator.iterate(image, 2, k, 1.0f, new Point2D.Double(getWidth() / 2d, getHeight() / 2d),
-                    Render.STANDARD, config.getMode(), functions, config.getCoordinateTransform());
-            repaint();
+            preview.update(getTransforms(), getReflections(), getSize());
         }
     }
 
@@ -329,11 +317,8 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     }
 
     public void resetImage() {
-        image = new BufferedImage(getSize().width, getSize().height, BufferedImage.TYPE_INT_ARGB);
-        context(controller, image.getGraphics(), g -> {
-            g.setColor(new Color(1f, 1f, 1f, 0f));
-            g.fillRect(0, 0, getSize().width, getSize().height);
-        });
+        preview.reset();
+        repaint();
     }
 
     /** @see javax.swing.JComponent#paintComponent(Graphics) */
@@ -345,9 +330,10 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
             paintGrid(g);
 
             if (ifs != null) {
-                if (ifs.size() > 0) {
+                BufferedImage image = preview.getImage();
+                if (ifs.size() > 0 && image != null) {
                     g.setComposite(AlphaComposite.SrcOver.derive(0.8f));
-                    g.drawImage(image, new AffineTransformOp(new AffineTransform(), AffineTransformOp.TYPE_BILINEAR), 0, 0);
+                    g.drawImage(image, 0, 0, null);
                 }
 
                 for (Transform t : ifs.getTransforms()) {
@@ -521,13 +507,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     }
 
     public Transform getTransformAt(Point point) {
-        for (Transform t : Ordering.from(IFS.Z_ORDER).reverse().immutableSortedCopy(ifs.getTransforms())) {
-            Shape box = t.getTransform().createTransformedShape(unit());
-            if (box.contains(point)) {
-                return t;
-            }
-        }
-        return null;
+        return index.getTransformAt(point);
     }
 
     public Reflection getReflectionAt(Point point) {
@@ -541,11 +521,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     }
 
     public boolean isRotateHandle(Transform t, Point point) {
-        int rotateX = getWidth() / 2, rotateY = 0;
-        Point center = new Point();
-        t.getTransform().transform(new Point(rotateX, rotateY), center);
-        Arc2D handle = new Arc2D.Double(center.getX() - 6d, center.getY() - 6d, 12d, 12d, 0d, 360d, Arc2D.OPEN);
-        return handle.contains(point);
+        return index.get(t).isRotateHandle(point);
     }
 
     public boolean isResizeHandle(Transform t, Point point) {
@@ -581,38 +557,19 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     }
 
     public Corner getCorner(Transform t, Point point) {
-        for (Corner corner : Corner.values()) {
-            Point center = corner.getPoint(unit());
-            t.getTransform().transform(center, center);
-            Rectangle handle = new Rectangle(center.x - 5, center.y - 5, 10, 10);
-            if (handle.contains(point)) {
-                return corner;
-            }
-        }
-        return null;
+        return index.get(t).getCornerAt(point);
     }
 
     public void setCornerCursor(Transform t, Point point) {
-        Corner c = getCorner(t, point);
+        Index.Entry entry = index.get(t);
+        Corner c = entry.getCornerAt(point);
 
         List<Corner> we = Arrays.asList(Corner.values());
-        we.sort((a, b) -> {
-            Point pa = a.getPoint(unit());
-            Point pb = b.getPoint(unit());
-            t.getTransform().transform(pa, pa);
-            t.getTransform().transform(pb, pb);
-            return Ints.compare(pa.x, pb.x);
-        });
+        we.sort((a, b) -> Ints.compare(entry.getCorner(a).x, entry.getCorner(b).x));
         boolean west = (we.get(0) == c || we.get(1) == c);
 
         List<Corner> ns = west ? Arrays.asList(we.get(0), we.get(1)) : Arrays.asList(we.get(2), we.get(3));
-        ns.sort((a, b) -> {
-            Point pa = a.getPoint(unit());
-            Point pb = b.getPoint(unit());
-            t.getTransform().transform(pa, pa);
-            t.getTransform().transform(pb, pb);
-            return Ints.compare(pa.y, pb.y);
-        });
+        ns.sort((a, b) -> Ints.compare(entry.getCorner(a).y, entry.getCorner(b).y));
         boolean north = (ns.get(0) == c);
 
         Corner actual = north ? (west ? Corner.NW : Corner.NE) : (west ? Corner.SW : Corner.SE);
@@ -644,11 +601,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                 start = snap(e.getPoint());
                 setCursor(new Cursor(Cursor.MOVE_CURSOR));
             } else {
-                resize = null;
-                ifs.getTransforms().stream()
-                        .filter(t -> !t.isMatrix() && isResizeHandle(t, e.getPoint()))
-                        .findFirst()
-                        .ifPresent(t -> resize = t);
+                resize = index.getResizeAt(e.getPoint());
                 if (resize != null) {
                     corner = getCorner(resize, e.getPoint());
                     if (corner != null) {
@@ -658,12 +611,14 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                         setCornerCursor(resize, e.getPoint());
                     }
                     ifs.getTransforms().remove(resize);
+                    index.remove(resize);
                     selected = resize;
                 } else if (clickTransform != null) {
                     if (!clickTransform.isMatrix() && isRotateHandle(clickTransform, e.getPoint())) {
                         selected = clickTransform;
                         rotate = selected;
                         ifs.getTransforms().remove(rotate);
+                        index.remove(rotate);
                         start = snap(e.getPoint());
                         setCursor(new Cursor(Cursor.CROSSHAIR_CURSOR));
                     } else {
@@ -675,6 +630,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                         setCursor(new Cursor(Cursor.MOVE_CURSOR));
                         start = snap(e.getPoint());
                         ifs.getTransforms().remove(selected);
+                        index.remove(selected);
                     }
                 } else {
                     start = snap(e.getPoint());
@@ -695,6 +651,9 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     /** @see java.awt.event.MouseListener#mouseReleased(java.awt.event.MouseEvent) */
     @Override
     public void mouseReleased(MouseEvent e) {
+        idle.stop();
+        preview.setDraft(false);
+
         if (notContextMenu(e) && SwingUtilities.isLeftMouseButton(e)) {
             if (selected == null && start != null && end != null) {
                 int x = Math.min(start.x, end.x);
@@ -719,6 +678,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                         reflection.r = Math.atan2(dx, dy);
                     }
                     ifs.add(reflection);
+                    notifier.post(ifs, reflection, Field.ADDED);
                     reflection = null;
                 } else {
                     selected = Transform.create(getSize());
@@ -727,11 +687,13 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                     selected.w = w;
                     selected.h = h;
                     ifs.add(selected);
+                    index.update(selected);
+                    notifier.post(ifs, selected, Field.ADDED);
                 }
-                bus.post(ifs);
             } else if (selected != null  && start != null && end != null) {
                 ifs.add(selected);
-                bus.post(ifs);
+                index.update(selected);
+                notifier.post(ifs, selected, Field.GEOMETRY);
             }
         }
     }
@@ -774,6 +736,9 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     @Override
     public void mouseDragged(MouseEvent e) {
         if (start != null) {
+            preview.setDraft(true);
+            idle.restart();
+
             end = snap(e.getPoint());
             if (reflection != null) {
                 if (e.isMetaDown()) {
@@ -904,15 +869,10 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
     @Override
     public void mouseMoved(MouseEvent e) {
         if (start == null) {
-            Optional<Transform> corner = ifs.getTransforms().stream()
-                    .filter(t -> !t.isMatrix() && isResizeHandle(t, e.getPoint()))
-                    .findFirst();
-            Optional<Transform> rotate = ifs.getTransforms().stream()
-                    .filter(t -> !t.isMatrix() && isRotateHandle(t, e.getPoint()))
-                    .findFirst();
-            if (corner.isPresent()) {
-                setCornerCursor(corner.get(), e.getPoint());
-            } else if (rotate.isPresent()) {
+            Transform corner = index.getResizeAt(e.getPoint());
+            if (corner != null) {
+                setCornerCursor(corner, e.getPoint());
+            } else if (index.getRotateAt(e.getPoint()) != null) {
                 setCursor(new Cursor(Cursor.CROSSHAIR_CURSOR));
             } else if (getTransformAt(e.getPoint()) != null) {
                 setCursor(new Cursor(Cursor.HAND_CURSOR));
@@ -933,8 +893,8 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                     case KeyEvent.VK_DELETE:
                     case KeyEvent.VK_BACK_SPACE:
                         ifs.getTransforms().remove(selected);
+                        notifier.post(ifs, selected, Field.REMOVED);
                         selected = null;
-                        bus.post(ifs);
                         break;
                     case KeyEvent.VK_EQUALS:
                         if (!e.isShiftDown()) break;
@@ -952,6 +912,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                                 selected.r -= Math.PI / 2d;
                             }
                         }
+                        index.update(selected);
                         repaint();
                         break;
                     case KeyEvent.VK_LEFT:
@@ -980,6 +941,7 @@ public class Editor extends JPanel implements MouseInputListener, KeyListener, A
                             selected.x += dx;
                             selected.y += dy;
                         }
+                        index.update(selected);
                         repaint();
                         break;
                 }
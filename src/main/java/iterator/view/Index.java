@@ -0,0 +1,242 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.view;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Sets;
+
+import iterator.model.IFS;
+import iterator.model.Transform;
+import iterator.view.Editor.Corner;
+
+/**
+ * Spatial index of transform geometry for {@link Editor} hit-testing.
+ * <p>
+ * The outline, corner handles and rotate handle of each transform are
+ * computed once when the transform changes, and the transform is added to
+ * every cell of a uniform grid over the editor that its bounds overlap. A
+ * hit-test then only needs to check the transforms in a single cell.
+ */
+public class Index {
+
+    /** Size of a grid cell in pixels. */
+    public static final int CELL = 32;
+
+    /** Size of the square corner handles in pixels. */
+    public static final int HANDLE = 10;
+
+    /** Diameter of the circular rotate handle in pixels. */
+    public static final int ROTATE = 12;
+
+    /** Cached geometry for a transform. */
+    public static final class Entry {
+
+        private final Transform transform;
+        private final double[] matrix = new double[6];
+        private final Shape outline;
+        private final Point[] corners = new Point[Corner.values().length];
+        private final Arc2D rotate;
+        private final Rectangle bounds;
+        private int rank;
+
+        private Entry(Transform transform, Rectangle unit, int rank) {
+            this.transform = transform;
+            this.rank = rank;
+
+            AffineTransform affine = transform.getTransform();
+            affine.getMatrix(matrix);
+            outline = affine.createTransformedShape(unit);
+            Rectangle extent = outline.getBounds();
+            for (Corner corner : Corner.values()) {
+                Point centre = corner.getPoint(unit);
+                affine.transform(centre, centre);
+                corners[corner.ordinal()] = centre;
+                extent.add(new Rectangle(centre.x - HANDLE / 2, centre.y - HANDLE / 2, HANDLE, HANDLE));
+            }
+            Point centre = new Point();
+            affine.transform(new Point(unit.width / 2, 0), centre);
+            rotate = new Arc2D.Double(centre.getX() - ROTATE / 2d, centre.getY() - ROTATE / 2d, ROTATE, ROTATE, 0d, 360d, Arc2D.OPEN);
+            extent.add(rotate.getBounds());
+            bounds = extent;
+        }
+
+        public Transform getTransform() { return transform; }
+
+        public Shape getOutline() { return outline; }
+
+        /** The centre of a corner handle in editor co-ordinates. */
+        public Point getCorner(Corner corner) { return new Point(corners[corner.ordinal()]); }
+
+        /** The corner whose handle contains the point, or {@code null}. */
+        public Corner getCornerAt(Point point) {
+            for (Corner corner : Corner.values()) {
+                Point centre = corners[corner.ordinal()];
+                Rectangle handle = new Rectangle(centre.x - HANDLE / 2, centre.y - HANDLE / 2, HANDLE, HANDLE);
+                if (handle.contains(point)) {
+                    return corner;
+                }
+            }
+            return null;
+        }
+
+        public boolean isRotateHandle(Point point) { return rotate.contains(point); }
+
+        private boolean isCurrent(Transform t, double[] current) {
+            t.getTransform().getMatrix(current);
+            return Arrays.equals(matrix, current);
+        }
+    }
+
+    private final Map<Integer, Entry> entries = Maps.newHashMap();
+    private final ListMultimap<Integer, Entry> grid = MultimapBuilder.hashKeys().arrayListValues().build();
+    private final double[] scratch = new double[6];
+    private Rectangle unit = new Rectangle();
+    private int columns, rows;
+
+    /**
+     * Synchronises the index with the transforms of an IFS.
+     * <p>
+     * Only transforms that are new or have changed since the last
+     * synchronisation are re-indexed, and missing transforms are removed.
+     */
+    public void sync(Collection<Transform> transforms, Dimension size) {
+        if (!unit.getSize().equals(size)) {
+            unit = new Rectangle(size);
+            columns = size.width / CELL + 1;
+            rows = size.height / CELL + 1;
+            entries.clear();
+            grid.clear();
+        }
+
+        Set<Integer> missing = Sets.newHashSet(entries.keySet());
+        int rank = 0;
+        for (Transform t : transforms) {
+            missing.remove(t.getId());
+            Entry entry = entries.get(t.getId());
+            if (entry != null && entry.transform == t && entry.isCurrent(t, scratch)) {
+                entry.rank = rank;
+            } else {
+                insert(t, rank);
+            }
+            rank++;
+        }
+        missing.forEach(this::remove);
+    }
+
+    /** Re-indexes a single transform after it has been changed in place. */
+    public void update(Transform t) {
+        Entry entry = entries.get(t.getId());
+        insert(t, entry == null ? entries.size() : entry.rank);
+    }
+
+    /** Removes a transform from the index. */
+    public void remove(Transform t) {
+        remove(t.getId());
+    }
+
+    private void remove(int id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            cells(entry.bounds, cell -> grid.remove(cell, entry));
+        }
+    }
+
+    private void insert(Transform t, int rank) {
+        remove(t.getId());
+        Entry entry = new Entry(t, unit, rank);
+        entries.put(t.getId(), entry);
+        cells(entry.bounds, cell -> grid.put(cell, entry));
+    }
+
+    private void cells(Rectangle bounds, IntConsumer action) {
+        int x0 = Math.max(0, Math.floorDiv(bounds.x, CELL));
+        int y0 = Math.max(0, Math.floorDiv(bounds.y, CELL));
+        int x1 = Math.min(columns - 1, Math.floorDiv(bounds.x + bounds.width, CELL));
+        int y1 = Math.min(rows - 1, Math.floorDiv(bounds.y + bounds.height, CELL));
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                action.accept(x + y * columns);
+            }
+        }
+    }
+
+    /** The entries whose bounds may contain a point. */
+    public List<Entry> candidates(Point point) {
+        if (point.x < 0 || point.y < 0 || point.x >= unit.width || point.y >= unit.height) {
+            return ImmutableList.of();
+        }
+        return grid.get((point.x / CELL) + (point.y / CELL) * columns);
+    }
+
+    public Entry get(Transform t) {
+        Entry entry = entries.get(t.getId());
+        if (entry == null || entry.transform != t || !entry.isCurrent(t, scratch)) {
+            insert(t, entry == null ? entries.size() : entry.rank);
+            entry = entries.get(t.getId());
+        }
+        return entry;
+    }
+
+    /** The top-most transform whose outline contains the point, or {@code null}. */
+    public Transform getTransformAt(Point point) {
+        Transform found = null;
+        for (Entry entry : candidates(point)) {
+            if (entry.outline.contains(point) && (found == null || IFS.Z_ORDER.compare(entry.transform, found) > 0)) {
+                found = entry.transform;
+            }
+        }
+        return found;
+    }
+
+    /** The first non-matrix transform with a corner handle at the point, or {@code null}. */
+    public Transform getResizeAt(Point point) {
+        Entry found = null;
+        for (Entry entry : candidates(point)) {
+            if (!entry.transform.isMatrix() && entry.getCornerAt(point) != null && (found == null || entry.rank < found.rank)) {
+                found = entry;
+            }
+        }
+        return found == null ? null : found.transform;
+    }
+
+    /** The first non-matrix transform with a rotate handle at the point, or {@code null}. */
+    public Transform getRotateAt(Point point) {
+        Entry found = null;
+        for (Entry entry : candidates(point)) {
+            if (!entry.transform.isMatrix() && entry.isRotateHandle(point) && (found == null || entry.rank < found.rank)) {
+                found = entry;
+            }
+        }
+        return found == null ? null : found.transform;
+    }
+
+}
@@ -24,7 +24,6 @@ import static iterator.Utils.getPixel;
 import static iterator.Utils.locked;
 import static iterator.Utils.octet;
 import static iterator.Utils.unity;
-import static iterator.Utils.weight;
 
 import java.awt.AlphaComposite;
 import java.awt.Color;
@@ -32,8 +31,12 @@ import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -48,28 +51,35 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiConsumer;
-import java.util.function.UnaryOperator;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
 
 import com.google.common.base.CaseFormat;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
+import com.google.common.math.IntMath;
 import com.google.common.math.LongMath;
 import com.google.common.util.concurrent.Atomics;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 
+import iterator.model.Composition;
 import iterator.model.Function;
-import iterator.model.Transform;
+import iterator.model.Kernel;
+import iterator.model.Prefixes;
+import iterator.model.Snapshot;
+import iterator.model.Symmetry;
+import iterator.model.functions.CoordinateTransform;
 import iterator.util.Config;
+import iterator.util.Config.Engine;
 import iterator.util.Config.Mode;
 import iterator.util.Config.Render;
+import iterator.util.Config.Sampling;
 import iterator.util.Formatter;
 import iterator.util.Formatter.DoubleFormatter;
 import iterator.util.Formatter.FloatFormatter;
@@ -81,25 +91,150 @@ public class Iterator implements Runnable, ThreadFactory {
 
     public enum Task { ITERATE, PLOT_DENSITY }
 
+    /** Decay applied to the confidence of a reprojected seed pixel on every new sample. */
+    public static final float SEED_DECAY = 0.9f;
+
+    /** Bounds on the number of points a walker discards while converging onto the attractor. */
+    public static final int MIN_BURN_IN = 20, MAX_BURN_IN = 10_000;
+
+    /** Walkers further than this many display sizes from the centre have escaped. */
+    public static final double ESCAPE_DISTANCE = 8d;
+
+    /** Consecutive iterations a walker may spend escaped before it is reseeded. */
+    public static final int ESCAPE_LIMIT = 256;
+
+    /** Fraction of a pixel that single precision must resolve, or the kernel falls back to double. */
+    public static final double FLOAT_RESOLUTION = 1d / 16d;
+
+    /** Number of attractor points kept for reseeding walkers, and the iterations between samples. */
+    public static final int SAMPLES = 64, SAMPLE_INTERVAL = 1024;
+
+    /** Number of points sampled to estimate the bounds of the attractor. */
+    public static final int BOUNDS_SAMPLES = 20_000;
+
+    /** Fraction of the sampled points excluded from each side of the bounds. */
+    public static final double BOUNDS_TRIM = 0.001d;
+
+    /** Margin around the attractor when fitting it to the display, as a fraction of the display size. */
+    public static final double FIT_MARGIN = 0.05d;
+
+    /** Deepest composition of functions visited by the subdivision engine. */
+    public static final int MAX_DEPTH = 64;
+
+    /** Pixel radius below which the subdivision engine plots a disc as a single point. */
+    public static final double LEAF_RADIUS = 0.25d;
+
+    /**
+     * Chaos game state for a single render thread.
+     * <p>
+     * Each thread follows its own point, so that it discards the points
+     * plotted while converging onto the attractor regardless of how many
+     * points other threads have already plotted.
+     */
+    private static final class Walker {
+
+        private Point2D point;
+        private Snapshot functions = Snapshot.EMPTY;
+        private long epoch = -1L;
+        private int burn, escaped;
+        private double sequence;
+
+        /** Steps the quasi-random sequence, a golden ratio rotation from a random start. */
+        private double next() {
+            sequence += Kernel.GOLDEN_RATIO;
+            if (sequence >= 1d) sequence -= 1d;
+            return sequence;
+        }
+    }
+
+    /**
+     * A detached copy of the accumulated state for a viewport.
+     *
+     * @see Iterator#snapshot()
+     * @see Iterator#restore(State)
+     */
+    public static final class State {
+
+        private final Dimension size;
+        private final float scale;
+        private final Point2D centre;
+        private final BufferedImage image;
+        private final int[] top;
+        private final long[] density, blur;
+        private final double[] colour;
+        private final float[] seed, confidence;
+        private final long max, count;
+
+        private State(Iterator iterator) {
+            size = new Dimension(iterator.size);
+            scale = iterator.scale;
+            centre = (Point2D) iterator.centre.clone();
+            image = iterator.newImage();
+            context(iterator.exceptionHandler, image.getGraphics(), g -> {
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(iterator.image.get(), 0, 0, null);
+            });
+            top = iterator.top.clone();
+            density = iterator.density.clone();
+            blur = iterator.blur.clone();
+            colour = iterator.colour.clone();
+            seed = iterator.seed == null ? null : iterator.seed.clone();
+            confidence = iterator.confidence == null ? null : iterator.confidence.clone();
+            max = iterator.max;
+            count = iterator.count.get();
+        }
+
+        public long getCount() { return count; }
+
+        /** Approximate memory used by the state, in bytes. */
+        public long getBytes() {
+            long pixels = (long) size.width * (long) size.height;
+            return (pixels * (Integer.BYTES * 2 + Long.BYTES + Double.BYTES))
+                    + (blur.length * Long.BYTES)
+                    + (seed == null ? 0L : pixels * Float.BYTES * 2);
+        }
+    }
+
     private final Config config;
     private final BiConsumer<Throwable, String> exceptionHandler;
 
-    private List<Function> transforms;
+    private AtomicReference<Snapshot> snapshot = Atomics.newReference(Snapshot.EMPTY);
+    private AtomicReference<CoordinateTransform> transform = Atomics.newReference();
     private AtomicReference<BufferedImage> image = Atomics.newReference();
     private int[] top;
     private long[] density;
     private long[] blur;
     private double[] colour;
+    private float[] seed, confidence;
     private float vibrancy, vibrancyLimit;
     private int kernel;
     private long max;
     private AtomicBoolean latch = new AtomicBoolean(true);
     private Object mutex = new Object[0];
-    private AtomicReferenceArray<Point2D> points = Atomics.newReferenceArray(2);
+    private ThreadLocal<Walker> walkers = ThreadLocal.withInitial(Walker::new);
+    private AtomicReferenceArray<Point2D> samples = Atomics.newReferenceArray(SAMPLES);
+    private AtomicReference<Snapshot> sampled = Atomics.newReference(Snapshot.EMPTY);
+    private AtomicReference<Composition> compositions = Atomics.newReference(Composition.EMPTY);
+    private AtomicReference<Kernel> kernels = Atomics.newReference();
+    private AtomicReference<Composition> strata = Atomics.newReference(Composition.EMPTY);
+    private AtomicReference<Kernel> samplers = Atomics.newReference();
+    private AtomicReference<Prefixes> prefixes = Atomics.newReference(Prefixes.EMPTY);
+    private AtomicReference<Snapshot> subdivided = Atomics.newReference(Snapshot.EMPTY);
+    private AtomicReference<Tree> trees = Atomics.newReference();
+    private AtomicInteger branch = new AtomicInteger(0);
+    private AtomicLong epoch = new AtomicLong(0L);
+    private AtomicLong started = new AtomicLong(0L);
+    private AtomicLong discarded = new AtomicLong(0L);
+    private AtomicLong diverged = new AtomicLong(0L);
+    private AtomicLong escaped = new AtomicLong(0L);
+    private AtomicLong reseeded = new AtomicLong(0L);
+    private AtomicLong plotted = new AtomicLong(0L);
+    private AtomicLong outside = new AtomicLong(0L);
     private AtomicLong count = new AtomicLong(0L);
     private AtomicInteger task = new AtomicInteger(0);
     private AtomicBoolean running = new AtomicBoolean(false);
     private AtomicLong token = new AtomicLong(0L);
+    private AtomicLong version = new AtomicLong(0L);
     private Random random = new Random();
     private float scale = 1.0f;
     private Point2D centre;
@@ -131,8 +266,51 @@ public class Iterator implements Runnable, ThreadFactory {
 
     public long getCount() { return count.get(); }
 
+    /** The number of walkers started since the last reset. */
+    public long getWalkers() { return started.get(); }
+
+    /** The number of points discarded while walkers converged onto the attractor. */
+    public long getDiscarded() { return discarded.get(); }
+
+    /** The number of times a walker reached a non-finite point. */
+    public long getDiverged() { return diverged.get(); }
+
+    /** The number of times a walker stayed far outside the display for too long. */
+    public long getEscaped() { return escaped.get(); }
+
+    /** The number of diverged or escaped walkers moved to a sampled attractor point. */
+    public long getReseeded() { return reseeded.get(); }
+
+    /** The fraction of converged points that fell outside the viewport since the last reset. */
+    public double getOutside() {
+        long total = plotted.get() + outside.get();
+        return total == 0L ? 0d : (double) outside.get() / total;
+    }
+
+    /** Frame version, incremented whenever the image changes. */
+    public long getVersion() { return version.get(); }
+
+    /**
+     * Compiles the functions into a new {@link Snapshot} and publishes it to
+     * the render threads, which use it from their next chunk of iterations.
+     * Symmetric images are only plotted directly with the identity transform.
+     */
     public void setTransforms(List<Function> transforms) {
-        this.transforms = transforms;
+        boolean splat = config.getCoordinateTransformType() == CoordinateTransform.Type.IDENTITY;
+        snapshot.set(Snapshot.of(transforms, config.getSymmetry(), splat));
+    }
+
+    /**
+     * The coordinate transform for this engine, created for the current size
+     * and the configured type, lookup table spacing and math mode when any
+     * changes.
+     */
+    public CoordinateTransform getCoordinateTransform() {
+        CoordinateTransform.Type type = config.getCoordinateTransformType();
+        int step = config.getTransformLookup();
+        boolean fast = config.isTransformFast();
+        Dimension current = size;
+        return transform.updateAndGet(f -> type.isInstance(f, current, step, fast) ? f : type.create(current, step, fast));
     }
 
     public void rescale(float scale, Point2D centre) {
@@ -145,26 +323,331 @@ public class Iterator implements Runnable, ThreadFactory {
     }
 
     public void reset(Dimension size) {
-        this.size = size;
+        prepare(size);
 
         scale = config.getDisplayScale();
         centre = new Point2D.Double(config.getDisplayCentreX() * size.getWidth(), config.getDisplayCentreY() * size.getHeight());
 
         image.set(newImage());
 
-        points.set(0, new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height)));
-        points.set(1, new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height)));
+        // Reuse the existing buffers if the size is unchanged
+        int pixels = size.width * size.height;
+        if (density != null && density.length == pixels) {
+            Arrays.fill(top, 0);
+            Arrays.fill(density, 0L);
+            Arrays.fill(colour, 0d);
+        } else {
+            top = new int[pixels];
+            density = new long[pixels];
+            colour = new double[pixels];
+        }
+        int blocks = (size.width / kernel + 1) * (size.height / kernel + 1);
+        if (blur != null && blur.length == blocks) {
+            Arrays.fill(blur, 0L);
+        } else {
+            blur = new long[blocks];
+        }
+        seed = null;
+        confidence = null;
+        max = 1;
+
+        count.set(0L);
+        version.incrementAndGet();
+    }
+
+    private void prepare(Dimension size) {
+        this.size = size;
+
+        // Walkers are started again at the new size
+        epoch.incrementAndGet();
+        clearSamples();
+        started.set(0L);
+        discarded.set(0L);
+        diverged.set(0L);
+        escaped.set(0L);
+        reseeded.set(0L);
+        plotted.set(0L);
+        outside.set(0L);
+        branch.set(0);
 
         vibrancy = config.getVibrancy();
         vibrancyLimit = config.getVibrancyLimit();
         kernel = config.getBlurKernel();
-        top = new int[size.width * size.height];
-        density = new long[size.width * size.height];
-        blur = new long[(size.width / kernel + 1) * (size.height / kernel + 1)];
-        colour = new double[size.width * size.height];
-        max = 1;
 
-        count.set(0L);
+        // Create the coordinate transform, and any lookup table, before rendering
+        getCoordinateTransform();
+    }
+
+    /**
+     * Resets the iterator for a new viewport, using the current histogram as a seed.
+     * <p>
+     * The accumulated density, colour and top buffers are resampled from the
+     * previous viewport into the new one given by the configured scale and
+     * centre, and the current image is redrawn to match. The resampled density
+     * is kept separately with a per-pixel confidence weight, which decays as
+     * new samples arrive, so that it is gradually replaced by real data.
+     *
+     * @param size the new display size
+     * @see #reset(Dimension)
+     */
+    public void reproject(Dimension size) {
+        if (this.size == null || density == null) {
+            reset(size);
+            return;
+        }
+
+        Dimension previous = this.size;
+        float previousScale = scale;
+        Point2D previousCentre = centre;
+        BufferedImage previousImage = image.get();
+        long[] previousDensity = density;
+        double[] previousColour = colour;
+        int[] previousTop = top;
+        float[] previousSeed = seed, previousConfidence = confidence;
+
+        // Detach the previous buffers so they are not reused
+        top = null;
+        density = null;
+        colour = null;
+
+        reset(size);
+
+        // Affine mapping from new to previous pixel co-ordinates, allowing for IFS rescaling on resize
+        double kx = size.getWidth() / previous.getWidth();
+        double ky = size.getHeight() / previous.getHeight();
+        double ax = previousScale / (scale * kx);
+        double ay = previousScale / (scale * ky);
+        double bx = (centre.getX() / kx - previousCentre.getX()) * previousScale + (previous.getWidth() / 2d) - (ax * size.getWidth() / 2d);
+        double by = (centre.getY() / ky - previousCentre.getY()) * previousScale + (previous.getHeight() / 2d) - (ay * size.getHeight() / 2d);
+
+        // Redraw the previous image as a faded low-detail seed
+        AffineTransform view = AffineTransform.getScaleInstance(1d / ax, 1d / ay);
+        view.translate(-bx, -by);
+        context(exceptionHandler, image.get().getGraphics(), g -> {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, config.getRender().isDensity() ? 1f : 0.5f));
+            g.drawImage(previousImage, view, null);
+        });
+
+        // Resample the histogram buffers
+        float[] estimate = new float[size.width * size.height];
+        if (ax * ay < 1d) {
+            // Zooming in, so sample nearest previous pixel and scale by area
+            for (int y = 0; y < size.height; y++) {
+                int sy = (int) Math.floor(ay * (y + 0.5d) + by);
+                if (sy < 0 || sy >= previous.height) continue;
+                for (int x = 0; x < size.width; x++) {
+                    int sx = (int) Math.floor(ax * (x + 0.5d) + bx);
+                    if (sx < 0 || sx >= previous.width) continue;
+                    int p = x + y * size.width;
+                    int q = sx + sy * previous.width;
+                    estimate[p] = (float) (ax * ay * density(q, previousDensity, previousSeed, previousConfidence));
+                    colour[p] = previousColour[q];
+                    top[p] = previousTop[q];
+                }
+            }
+        } else {
+            // Zooming out, so accumulate each previous pixel into its new location
+            for (int sy = 0; sy < previous.height; sy++) {
+                int y = (int) Math.floor((sy + 0.5d - by) / ay);
+                if (y < 0 || y >= size.height) continue;
+                for (int sx = 0; sx < previous.width; sx++) {
+                    int x = (int) Math.floor((sx + 0.5d - bx) / ax);
+                    if (x < 0 || x >= size.width) continue;
+                    int p = x + y * size.width;
+                    int q = sx + sy * previous.width;
+                    estimate[p] += (float) density(q, previousDensity, previousSeed, previousConfidence);
+                    colour[p] = previousColour[q];
+                    top[p] = Math.max(top[p], previousTop[q]);
+                }
+            }
+        }
+
+        float peak = 1f;
+        for (float value : estimate) {
+            peak = Math.max(peak, value);
+        }
+        max = (long) Math.ceil(peak);
+        confidence = new float[estimate.length];
+        Arrays.fill(confidence, 1f);
+        seed = estimate;
+
+        version.incrementAndGet();
+    }
+
+    /**
+     * Copies the current accumulated state.
+     * <p>
+     * The iterator should be stopped first, so that the buffers are not
+     * modified while they are being copied.
+     *
+     * @return a detached copy of the state
+     * @see #restore(State)
+     */
+    public State snapshot() {
+        return new State(this);
+    }
+
+    /**
+     * Resets the iterator to continue accumulating from a saved state.
+     * <p>
+     * The iterator takes ownership of the state buffers, so the same state
+     * must not be restored again once the iterator has been started.
+     *
+     * @param state the saved state
+     * @see #snapshot()
+     */
+    public void restore(State state) {
+        prepare(state.size);
+
+        scale = state.scale;
+        centre = state.centre;
+        image.set(state.image);
+        top = state.top;
+        density = state.density;
+        blur = state.blur;
+        colour = state.colour;
+        seed = state.seed;
+        confidence = state.confidence;
+        max = state.max;
+
+        count.set(state.count);
+        version.incrementAndGet();
+    }
+
+    private void clearSamples() {
+        for (int i = 0; i < SAMPLES; i++) {
+            samples.set(i, null);
+        }
+    }
+
+    /**
+     * Estimates the number of points a walker must discard to converge onto
+     * the attractor to within half a pixel, from the contraction of the
+     * functions. Coordinate transforms other than the identity may expand
+     * distances, so walkers always discard the maximum for them.
+     */
+    private int burnIn(Snapshot functions, Function function, float scale) {
+        double ratio = functions.getContraction();
+        if (function.getId() != CoordinateTransform.Type.IDENTITY.getId() || ratio >= 1d || functions.getTransforms() == 0) {
+            return MAX_BURN_IN;
+        }
+        double distance = Math.hypot(size.width, size.height) * Math.max(scale, 1f);
+        double steps = Math.ceil(Math.log(0.5d / distance) / Math.log(ratio));
+
+        // Reflections sampled as functions do not contract
+        steps *= (double) functions.size() / functions.getTransforms();
+        return (int) Math.max(MIN_BURN_IN, Math.min(MAX_BURN_IN, steps));
+    }
+
+    /**
+     * The cached chaos game kernel for the functions and current settings,
+     * which is created again when any of them change.
+     */
+    private Kernel kernel(Snapshot functions, Function function, boolean single) {
+        int power = function.getId() == CoordinateTransform.Type.IDENTITY.getId() ? config.getEngineCompose() : 1;
+        boolean reverse = config.isReverseOrder();
+        Composition table = compositions.updateAndGet(c -> c.matches(functions, power) ? c : Composition.of(functions, power));
+        return kernels.updateAndGet(cached -> cached != null && cached.matches(table, function, reverse, single) ? cached : Kernel.of(table, function, reverse, single));
+    }
+
+    /**
+     * Estimates the bounding box of the attractor in IFS co-ordinates, by
+     * following a walker through the same kernel as the chaos game, for a
+     * short sample of points and their symmetric images. The most extreme
+     * points are trimmed, since variations can send a few points very far
+     * away.
+     *
+     * @return the bounds, or absent if no finite points were found
+     */
+    public Optional<Rectangle2D> getBounds() {
+        Snapshot functions = snapshot.get();
+        if (functions.isEmpty()) return Optional.empty();
+
+        Function function = getCoordinateTransform();
+        Kernel kernel = kernel(functions, function, false);
+        Symmetry symmetry = functions.getSymmetry();
+        int order = symmetry.getOrder();
+        double[] xs = new double[BOUNDS_SAMPLES * order];
+        double[] ys = new double[BOUNDS_SAMPLES * order];
+        int burn = IntMath.divide(burnIn(functions, function, 1f), kernel.getPower(), RoundingMode.CEILING);
+        int found = 0;
+        Point2D current = new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height));
+        for (long i = 0L; found < xs.length && i < BOUNDS_SAMPLES * 100L; i++) {
+            current = kernel.apply(kernel.choose(random), current);
+            if (!Double.isFinite(current.getX()) || !Double.isFinite(current.getY())) {
+                current = new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height));
+                continue;
+            }
+            if (burn > 0) {
+                burn--;
+                continue;
+            }
+            for (int h = 0; h < order; h++) {
+                Point2D point = symmetry.apply(h, current);
+                xs[found] = point.getX();
+                ys[found++] = point.getY();
+            }
+        }
+        if (found == 0) return Optional.empty();
+
+        Arrays.sort(xs, 0, found);
+        Arrays.sort(ys, 0, found);
+        int trim = (int) (found * BOUNDS_TRIM);
+        double x = xs[trim], y = ys[trim];
+        return Optional.of(new Rectangle2D.Double(x, y, xs[found - trim - 1] - x, ys[found - trim - 1] - y));
+    }
+
+    /**
+     * The display scale that fits a rectangle in IFS co-ordinates, such as
+     * the {@link #getBounds() bounds} of the attractor, leaving a margin.
+     */
+    public float getFitScale(Rectangle2D bounds) {
+        double fit = Math.min(size.getWidth() / bounds.getWidth(), size.getHeight() / bounds.getHeight()) * (1d - 2d * FIT_MARGIN);
+        return Double.isFinite(fit) && fit > 0d ? (float) fit : Config.DEFAULT_DISPLAY_SCALE;
+    }
+
+    /** The region of IFS co-ordinates shown in the viewport at a scale and centre. */
+    private Rectangle2D getViewport(float scale, Point2D centre) {
+        double w = size.getWidth() / scale, h = size.getHeight() / scale;
+        return new Rectangle2D.Double(centre.getX() - w / 2d, centre.getY() - h / 2d, w, h);
+    }
+
+    /**
+     * Whether single precision co-ordinates resolve a fraction of a pixel
+     * everywhere in the viewport at a scale and centre. The spacing between
+     * floats grows with their magnitude, so this fails once zoomed in far
+     * enough, particularly away from the origin.
+     */
+    private boolean isSinglePrecision(float scale, Point2D centre) {
+        Rectangle2D viewport = getViewport(scale, centre);
+        double extent = Math.max(
+                Math.max(Math.abs(viewport.getMinX()), Math.abs(viewport.getMaxX())),
+                Math.max(Math.abs(viewport.getMinY()), Math.abs(viewport.getMaxY())));
+        return Math.ulp((float) extent) * scale < FLOAT_RESOLUTION;
+    }
+
+    /**
+     * Moves a walker to a random point sampled from the attractor, or if
+     * there are none yet, a random point on the display. The walker keeps
+     * any remaining burn-in, rather than starting again, so that walkers
+     * which diverge often still plot points and fill the samples.
+     */
+    private void reseed(Walker walker) {
+        Point2D sample = samples.get(random.nextInt(SAMPLES));
+        if (sample != null) {
+            walker.point = sample;
+            walker.burn = 0;
+            reseeded.incrementAndGet();
+        } else {
+            walker.point = new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height));
+        }
+        walker.escaped = 0;
+    }
+
+    /** Effective density of a pixel, including any reprojected seed weighted by its confidence. */
+    private static double density(int p, long[] density, float[] seed, float[] confidence) {
+        return seed == null ? density[p] : density[p] + (seed[p] * confidence[p]);
     }
 
     public String getInfo() {
@@ -181,136 +664,692 @@ public class Iterator implements Runnable, ThreadFactory {
         return info;
     }
 
-    public void iterate(BufferedImage targetImage, int s, long k, float scale, Point2D centre, Render render, Mode mode, List<Function> functions, Function function) {
+    public void iterate(BufferedImage targetImage, int s, long k, float scale, Point2D centre, Render render, Mode mode, Snapshot functions, Function function) {
         context(exceptionHandler, targetImage.getGraphics(), g -> {
             renderingHints(g);
 
             if (functions.isEmpty()) return;
 
             int n = functions.size();
-            List<Transform> transforms = Lists.newArrayList(Iterables.filter(functions, Transform.class));
-            double weight = weight(transforms);
-            float[] hsb = new float[3];
-            Rectangle rect = new Rectangle(0, 0, s, s);
-            function.setSize(size);
+            Symmetry symmetry = functions.getSymmetry();
+            int order = symmetry.getOrder();
+            Plotter plotter = plotter(g, s, render, mode, n);
             Point2D old, current;
+            double ex = ESCAPE_DISTANCE * size.getWidth(), ey = ESCAPE_DISTANCE * size.getHeight();
+            long burnt = 0L, inside = 0L, missed = 0L;
+
+            // Attractor samples are only kept for the current functions
+            Snapshot last = sampled.get();
+            if (last != functions && sampled.compareAndSet(last, functions)) {
+                clearSamples();
+            }
+
+            // Specialise the step for the functions and settings, iterating precomposed pairs or triples of affine functions
+            boolean reverse = config.isReverseOrder();
+            boolean single = config.isEngineFloat() && isSinglePrecision(scale, centre);
+            Kernel kernel = kernel(functions, function, single);
+            boolean colours = mode.isIFSColour() || mode == Mode.GRADIENT || mode.isStealing();
+            Previous previous = colours ? kernel::previous : (c, p) -> p;
+
+            // Quasi-random choices are spread over the longest compositions that fit in a table
+            boolean quasi = config.getEngineSampling() == Sampling.QUASI_RANDOM;
+            Kernel sampler = kernel;
+            if (quasi && function.getId() == CoordinateTransform.Type.IDENTITY.getId()) {
+                Composition deep = strata.updateAndGet(c -> c.matches(functions, Prefixes.MAX_LENGTH) ? c : Composition.of(functions, Prefixes.MAX_LENGTH));
+                sampler = samplers.updateAndGet(cached -> cached != null && cached.matches(deep, function, reverse, single) ? cached : Kernel.of(deep, function, reverse, single));
+            }
+
+            // Start the walker for this thread, and converge again if the functions changed
+            Walker walker = walkers.get();
+            int burnIn = IntMath.divide(burnIn(functions, function, scale), kernel.getPower(), RoundingMode.CEILING);
+            if (walker.epoch != epoch.get()) {
+                walker.epoch = epoch.get();
+                walker.functions = functions;
+                walker.point = new Point2D.Double(random.nextInt(size.width), random.nextInt(size.height));
+                walker.burn = burnIn;
+                walker.escaped = 0;
+                walker.sequence = random.nextDouble();
+                started.incrementAndGet();
+            } else if (walker.functions != functions) {
+                walker.functions = functions;
+                walker.burn = burnIn;
+            }
+
+            // When zoomed in, plot the walker through the address prefixes that map into the viewport
+            Prefixes visible = Prefixes.EMPTY;
+            if (function.getId() == CoordinateTransform.Type.IDENTITY.getId()) {
+                Rectangle2D viewport = getViewport(scale, centre);
+                visible = prefixes.updateAndGet(p -> p.matches(functions, viewport) ? p : Prefixes.of(functions, viewport));
+            }
+
+            // Choose how the plotted point is selected once, rather than for every point
+            Selector selector = selector(kernel, sampler, visible, quasi, colours, order);
+            int images = selector.images;
 
             for (long i = 0L; i < k; i++) {
                 if (i % 1000L == 0L) {
                     count.incrementAndGet();
                 }
 
-                // Skip based on transform weighting
-                int j = random.nextInt(functions.size());
-                Function f = functions.get(j);
-                if ((j < transforms.size() ? ((Transform) f).getWeight() : weight) < random.nextDouble() * weight * (n - transforms.size() + 1d)) {
-                    continue;
-                }
+                // Choose a function, with an element of the symmetry group, weighted by probability
+                int c = kernel.choose(random);
 
-                // Apply the functions in the correct order depending on configuration
-                UnaryOperator<Point2D> evaluate = config.isReverseOrder() ? p -> f.apply(function.apply(p)) : p -> function.apply(f.apply(p));
+                // Evaluate the function for the (x,y) position, using the previous position for hue/saturation color space
+                Point2D source = walker.point;
+                current = kernel.apply(c, source);
+                old = previous.previous(c, source);
+                walker.point = current;
 
-                // Evaluate the function twice, first for (x,y) position and then for hue/saturation color space
-                current = points.updateAndGet(0, evaluate);
-                old = points.getAndUpdate(1, evaluate);
+                // Reseed walkers that diverge, or stay far outside the display
+                if (!Double.isFinite(current.getX()) || !Double.isFinite(current.getY())) {
+                    diverged.incrementAndGet();
+                    reseed(walker);
+                    continue;
+                }
+                if (Math.abs(current.getX() - size.getWidth() / 2d) > ex || Math.abs(current.getY() - size.getHeight() / 2d) > ey) {
+                    if (++walker.escaped > ESCAPE_LIMIT) {
+                        escaped.incrementAndGet();
+                        reseed(walker);
+                        continue;
+                    }
+                } else {
+                    walker.escaped = 0;
+                }
 
-                // Discard first 10K points
-                if (count.get() < 10) {
+                // Discard points until the walker has converged onto the attractor
+                if (walker.burn > 0) {
+                    walker.burn--;
+                    burnt++;
                     continue;
                 }
 
-                int x = (int) ((current.getX() - centre.getX()) * scale + (size.getWidth() / 2d));
-                int y = (int) ((current.getY() - centre.getY()) * scale + (size.getHeight() / 2d));
-                if (x >= 0 && y >= 0 && x < size.width && y < size.height) {
-                    int p = x + y * size.width;
+                // Keep a sample of the attractor for reseeding walkers
+                if (i % SAMPLE_INTERVAL == 0L && sampled.get() == functions) {
+                    samples.set(random.nextInt(SAMPLES), current);
+                }
 
-                    if (render == Render.TOP) {
-                        if (j > top[p]) top[p] = j;
+                // Select the point to plot, and plot it at each of its symmetric images, unless a prefix chose one
+                selector.select(walker, c, source, current, old);
+                Point2D image = selector.image;
+                for (int h = 0; h < images; h++) {
+                    Point2D point = h == 0 ? image : symmetry.apply(h, image);
+                    int x = (int) ((point.getX() - centre.getX()) * scale + (size.getWidth() / 2d));
+                    int y = (int) ((point.getY() - centre.getY()) * scale + (size.getHeight() / 2d));
+                    if (x < 0 || y < 0 || x >= size.width || y >= size.height) {
+                        missed++;
+                    } else {
+                        inside++;
+                        plotter.plot(x, y, selector.index, selector.before);
                     }
+                }
+            }
 
-                    // Density estimation histogram
-                    if (render.isDensity()) {
-                        try {
-                            density[p] = LongMath.checkedAdd(density[p], 1L);
-                            switch (render) {
-                                case LOG_DENSITY_BLUR:
-                                case LOG_DENSITY_BLUR_INVERSE:
-                                    density[p] = LongMath.checkedAdd(density[p], kernel - 1);
-                                    int q = (x / kernel) + (y / kernel) * (size.width / kernel);
-                                    blur[q] = LongMath.checkedAdd(blur[q], 1);
-                                    break;
-                                case LOG_DENSITY_POWER:
-                                case DENSITY_POWER:
-                                case LOG_DENSITY_POWER_INVERSE:
-                                    density[p] = (long) Math.min(((double) density[p]) * 1.01d, Long.MAX_VALUE);
-                                    break;
-                                default:
-                                    break;
-                            }
-                            max = Math.max(max, density[p]);
-                        } catch (ArithmeticException ae) { /* ignored */ }
-                    }
+            discarded.addAndGet(burnt);
+            plotted.addAndGet(inside);
+            outside.addAndGet(missed);
+        });
+    }
 
-                    // Choose the colour based on the display mode
-                    Color color = Color.BLACK;
-                    if (mode.isColour()) {
-                        if (mode.isIFSColour()) {
-                            color = Color.getHSBColor((float) (old.getX() / size.getWidth()), (float) (old.getY() / size.getHeight()), vibrancyLimit);
-                        } else if (mode == Mode.GRADIENT) {
-                            color = getPixel(config.getGradientImage(), size, old.getX(), old.getY());
-                        } else if (mode.isPalette()) {
-                            if (mode.isStealing()) {
-                                color = getPixel(config.getSourceImage(), size, old.getX(), old.getY());
-                            } else {
-                                if (render == Render.TOP) {
-                                    color = Iterables.get(config.getColours(), top[p] % config.getColours().size());
-                                } else {
-                                    color = Iterables.get(config.getColours(), j % config.getColours().size());
-                                }
-                            }
-                        } else {
-                            if (render == Render.TOP) {
-                                color = Color.getHSBColor((float) top[p] / (float) functions.size(), vibrancyLimit, vibrancyLimit);
-                            } else {
-                                color = Color.getHSBColor((float) j / (float) functions.size(), vibrancyLimit, vibrancyLimit);
-                            }
-                        }
-                        if (render.isDensity()) {
-                            colour[p] = (double) (color.getRGB() & RGB24) / (double) RGB24;
-                        }
-                    }
+    /**
+     * The point before the last function of a kernel choice was applied, as
+     * used by the colour modes.
+     *
+     * @see Kernel#previous(int, Point2D)
+     */
+    @FunctionalInterface
+    private interface Previous {
 
-                    // Set the paint colour according to the rendering mode
-                    if (render == Render.IFS) {
-                        g.setPaint(alpha(color, 255));
-                    } else {
-                        if (render == Render.MEASURE) {
-                            if (top[p] != 0) {
-                                color = new Color(top[p]);
-                                Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
-                                if (hsb[2] < 0.5f) {
-                                    color = color.brighter();
-                                }
-                            }
-                            top[p] = color.getRGB();
-                        }
-                        g.setPaint(alpha(color, 128));
-                    }
+        Point2D previous(int c, Point2D src);
+    }
 
-                    // Paint pixels unless using density rendering
-                    if (!render.isDensity()) {
-                        // Apply controller gamma correction
-                        Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
-                        g.setPaint(alpha(Color.HSBtoRGB(hsb[0],
-                                unity().apply(hsb[1] * vibrancy).floatValue() * vibrancyLimit,
-                                unity().apply(Math.pow(hsb[2], config.getGamma()) * vibrancy).floatValue() * vibrancyLimit),
-                                octet().apply((int) (color.getAlpha() * vibrancy))));
-                        rect.setLocation(x, y);
-                        g.fill(rect);
-                    }
-                }
+    /**
+     * Chooses the point plotted for each step of the chaos game, with the
+     * function index and previous point that colour it.
+     *
+     * @see Iterator#selector(Kernel, Kernel, Prefixes, boolean, boolean, int)
+     */
+    private abstract class Selector {
+
+        /** The number of symmetric images to plot for each point. */
+        protected final int images;
+        protected Point2D image, before;
+        protected int index;
+
+        private Selector(int images) {
+            this.images = images;
+        }
+
+        /**
+         * Selects the point for a step of the walker.
+         *
+         * @param c the kernel choice that moved the walker
+         * @param source the walker before the step
+         * @param current the walker after the step
+         * @param old the previous point for the step
+         */
+        public abstract void select(Walker walker, int c, Point2D source, Point2D current, Point2D old);
+    }
+
+    /** Plots the walker itself. */
+    private final class Walk extends Selector {
+
+        private final Kernel kernel;
+
+        private Walk(Kernel kernel, int order) {
+            super(order);
+            this.kernel = kernel;
+        }
+
+        @Override
+        public void select(Walker walker, int c, Point2D source, Point2D current, Point2D old) {
+            image = current;
+            before = old;
+            index = kernel.getFirst(c);
+        }
+    }
+
+    /** Plots the image of the previous walker position under a quasi-random composition. */
+    private final class Quasi extends Selector {
+
+        private final Kernel sampler;
+        private final Previous previous;
+
+        private Quasi(Kernel sampler, Previous previous, int order) {
+            super(order);
+            this.sampler = sampler;
+            this.previous = previous;
+        }
+
+        @Override
+        public void select(Walker walker, int c, Point2D source, Point2D current, Point2D old) {
+            int q = sampler.choose(walker.next());
+            image = sampler.apply(q, source);
+            before = previous.previous(q, source);
+            index = sampler.getFirst(q);
+        }
+    }
+
+    /** Plots the image of the walker under a visible prefix, chosen randomly or quasi-randomly. */
+    private final class Prefixed extends Selector {
+
+        private final Prefixes visible;
+        private final ToDoubleFunction<Walker> uniform;
+
+        private Prefixed(Prefixes visible, ToDoubleFunction<Walker> uniform) {
+            super(1);
+            this.visible = visible;
+            this.uniform = uniform;
+        }
+
+        @Override
+        public void select(Walker walker, int c, Point2D source, Point2D current, Point2D old) {
+            int w = visible.select(uniform.applyAsDouble(walker));
+            image = visible.apply(w, current);
+            before = visible.applyTail(w, current);
+            index = visible.getFirst(w);
+        }
+    }
+
+    /** The selector for a chunk of iterations, given the sampling and any visible prefixes. */
+    private Selector selector(Kernel kernel, Kernel sampler, Prefixes visible, boolean quasi, boolean colours, int order) {
+        if (!visible.isEmpty()) {
+            return new Prefixed(visible, quasi ? Walker::next : w -> random.nextDouble());
+        } else if (quasi) {
+            return new Quasi(sampler, colours ? sampler::previous : (q, p) -> p, order);
+        } else {
+            return new Walk(kernel, order);
+        }
+    }
+
+    /**
+     * Whether the functions can be rendered by the subdivision engine, which
+     * needs contracting affine functions with no reflections sampled as
+     * functions, and the identity transform.
+     */
+    public boolean isSubdivision(Snapshot functions, Function function) {
+        return config.getEngine() == Engine.SUBDIVISION
+                && function.getId() == CoordinateTransform.Type.IDENTITY.getId()
+                && functions.isContracting();
+    }
+
+    /**
+     * Renders the attractor by recursive subdivision of the tree of function
+     * compositions, for the {@link Engine#SUBDIVISION subdivision} engine.
+     * <p>
+     * Every function maps the {@link Snapshot#getRadius() bounding disc}
+     * inside itself, so the image of the disc under a composition bounds the
+     * part of the attractor with that address prefix. Branches are visited
+     * depth first, skipping any whose disc lies outside the viewport, until
+     * the disc is less than half a pixel across, when its centre is plotted.
+     * Each leaf is counted in proportion to the product of the probabilities
+     * along its address, which is the share of chaos game points it would
+     * receive, scaled so that a typical leaf counts about once, in the
+     * density renders. Each call claims branches two functions deep, shared
+     * with the other threads, until it has plotted {@code k} points.
+     *
+     * @return whether any branches were left to render
+     */
+    public boolean subdivide(BufferedImage targetImage, int s, long k, float scale, Point2D centre, Render render, Mode mode, Snapshot functions) {
+        // Start again from the first branch when the functions change
+        Snapshot previous = subdivided.get();
+        if (previous != functions && subdivided.compareAndSet(previous, functions)) {
+            branch.set(0);
+        }
+
+        int n = functions.size();
+        Tree tree = trees.updateAndGet(t -> t != null && t.functions == functions ? t : new Tree(functions));
+        int order = tree.order;
+        int m = tree.probability.length;
+        if (branch.get() >= m * m) return false;
+
+        // Scale leaf weights by the inverse of the mass of a leaf at the typical depth
+        double depth = Math.floor(Math.log(functions.getRadius() * scale / LEAF_RADIUS) / -Math.log(functions.getContraction())) + 1d;
+        double unit = Math.exp(tree.entropy * Math.max(0d, depth));
+
+        Point2D bound = functions.getCentre();
+        Subdivision subdivision = new Subdivision(tree, bound.getX(), bound.getY(), functions.getRadius(), scale, centre, unit);
+        context(exceptionHandler, targetImage.getGraphics(), g -> {
+            renderingHints(g);
+            subdivision.plotter = plotter(g, s, render, mode, n);
+
+            int b;
+            while (subdivision.leaves < k && (b = branch.getAndIncrement()) < m * m) {
+                int first = b / m, second = b % m;
+                double[] matrix = subdivision.matrix[2], tail = subdivision.tail[2];
+                compose(tree.maps, first * 6, tree.maps, second * 6, matrix);
+                System.arraycopy(tree.maps, second * 6, tail, 0, 6);
+                subdivision.weight[2] = tree.probability[first] * tree.probability[second];
+                subdivision.visit(2, first / order);
             }
         });
+
+        plotted.addAndGet(subdivision.inside);
+        outside.addAndGet(subdivision.missed);
+        return true;
+    }
+
+    /** Composes two affine matrices, applying {@code b} first and then {@code a}. */
+    private static void compose(double[] a, int i, double[] b, int j, double[] result) {
+        double m00 = a[i + 0] * b[j + 0] + a[i + 2] * b[j + 1];
+        double m10 = a[i + 1] * b[j + 0] + a[i + 3] * b[j + 1];
+        double m01 = a[i + 0] * b[j + 2] + a[i + 2] * b[j + 3];
+        double m11 = a[i + 1] * b[j + 2] + a[i + 3] * b[j + 3];
+        double m02 = a[i + 0] * b[j + 4] + a[i + 2] * b[j + 5] + a[i + 4];
+        double m12 = a[i + 1] * b[j + 4] + a[i + 3] * b[j + 5] + a[i + 5];
+        result[0] = m00;
+        result[1] = m10;
+        result[2] = m01;
+        result[3] = m11;
+        result[4] = m02;
+        result[5] = m12;
+    }
+
+    /**
+     * The functions composed with each element of the symmetry group, their
+     * selection probabilities, and the group itself, built once for each
+     * snapshot rendered by the subdivision engine.
+     */
+    private static final class Tree {
+
+        private final Snapshot functions;
+        private final double[] maps, group, probability;
+        private final double entropy;
+        private final int order;
+
+        private Tree(Snapshot functions) {
+            this.functions = functions;
+            Symmetry symmetry = functions.getSymmetry();
+            int n = functions.size();
+            order = symmetry.getOrder();
+            maps = new double[n * order * 6];
+            group = new double[order * 6];
+            probability = new double[n * order];
+            double[] coefficients = new double[6];
+            double h = 0d;
+            for (int j = 0; j < n; j++) {
+                for (int g = 0; g < order; g++) {
+                    int f = j * order + g;
+                    functions.getMatrix(j, g, coefficients);
+                    System.arraycopy(coefficients, 0, maps, f * 6, 6);
+                    probability[f] = functions.getWeight(j) / functions.getWeight() / order;
+                    if (probability[f] > 0d) h -= probability[f] * Math.log(probability[f]);
+                }
+            }
+            for (int g = 0; g < order; g++) {
+                symmetry.getMatrix(g, coefficients);
+                System.arraycopy(coefficients, 0, group, g * 6, 6);
+            }
+            entropy = h;
+        }
+    }
+
+    /**
+     * Depth first traversal state for a single call to
+     * {@link Iterator#subdivide(BufferedImage, int, long, float, Point2D, Render, Mode, Snapshot) subdivide}.
+     * <p>
+     * The matrix at each depth is the composition of the functions along the
+     * address so far, and the tail omits the first of them, so that it gives
+     * the previous point used by the colour modes. The weight is the product
+     * of the probabilities along the address.
+     */
+    private final class Subdivision {
+
+        private final double[] maps, group, probability;
+        private final double cx, cy, radius, unit;
+        private final float scale;
+        private final Point2D centre;
+        private final int order;
+        private final double[][] matrix = new double[MAX_DEPTH + 1][6];
+        private final double[][] tail = new double[MAX_DEPTH + 1][6];
+        private final double[] weight = new double[MAX_DEPTH + 1];
+        private final Point2D.Double old = new Point2D.Double();
+        private Plotter plotter;
+        private long leaves, inside, missed;
+
+        private Subdivision(Tree tree, double cx, double cy, double radius, float scale, Point2D centre, double unit) {
+            this.maps = tree.maps;
+            this.group = tree.group;
+            this.probability = tree.probability;
+            this.order = tree.order;
+            this.cx = cx;
+            this.cy = cy;
+            this.radius = radius;
+            this.scale = scale;
+            this.centre = centre;
+            this.unit = unit;
+        }
+
+        private void visit(int depth, int j) {
+            double[] m = matrix[depth];
+            double x = m[0] * cx + m[2] * cy + m[4];
+            double y = m[1] * cx + m[3] * cy + m[5];
+            double r = radius * Snapshot.norm(m, 0) * scale;
+
+            if (r < LEAF_RADIUS || depth == MAX_DEPTH) {
+                double[] t = tail[depth];
+                old.setLocation(t[0] * cx + t[2] * cy + t[4], t[1] * cx + t[3] * cy + t[5]);
+                leaf(x, y, j, weight[depth]);
+            } else if (visible(x, y, r)) {
+                double[] child = matrix[depth + 1], rest = tail[depth + 1];
+                for (int f = 0; f < probability.length; f++) {
+                    compose(m, 0, maps, f * 6, child);
+                    compose(tail[depth], 0, maps, f * 6, rest);
+                    weight[depth + 1] = weight[depth] * probability[f];
+                    visit(depth + 1, j);
+                }
+            }
+        }
+
+        /** Whether a disc of pixel radius {@code r}, or any of its symmetric images, meets the viewport. */
+        private boolean visible(double x, double y, double r) {
+            for (int h = 0; h < order; h++) {
+                int o = h * 6;
+                double px = group[o + 0] * x + group[o + 2] * y + group[o + 4];
+                double py = group[o + 1] * x + group[o + 3] * y + group[o + 5];
+                double sx = (px - centre.getX()) * scale + (size.getWidth() / 2d);
+                double sy = (py - centre.getY()) * scale + (size.getHeight() / 2d);
+                if (sx + r >= 0d && sy + r >= 0d && sx - r < size.width && sy - r < size.height) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Plots the centre of a leaf disc at each of its symmetric images,
+         * counted as its scaled weight, and at least once so that leaves
+         * lighter than the typical one are still drawn.
+         */
+        private void leaf(double x, double y, int j, double w) {
+            if (++leaves % 1000L == 0L) {
+                count.incrementAndGet();
+            }
+            long hits = Math.max(1L, Math.round(w * unit));
+            for (int h = 0; h < order; h++) {
+                int o = h * 6;
+                double px = group[o + 0] * x + group[o + 2] * y + group[o + 4];
+                double py = group[o + 1] * x + group[o + 3] * y + group[o + 5];
+                int sx = (int) ((px - centre.getX()) * scale + (size.getWidth() / 2d));
+                int sy = (int) ((py - centre.getY()) * scale + (size.getHeight() / 2d));
+                if (sx < 0 || sy < 0 || sx >= size.width || sy >= size.height) {
+                    missed++;
+                } else {
+                    inside++;
+                    plotter.plot(sx, sy, j, old, hits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Chooses the colour of a point, as an ARGB value, for a display mode.
+     *
+     * @see Iterator#shader(Render, Mode, int)
+     */
+    @FunctionalInterface
+    private interface Shader {
+
+        /**
+         * @param p the pixel index
+         * @param j the index of the function that produced the point
+         * @param old the previous point
+         */
+        int shade(int p, int j, Point2D old);
+    }
+
+    /**
+     * The colour of each point for a display mode, with the palette and
+     * images read from the configuration once.
+     *
+     * @param n the number of functions
+     */
+    private Shader shader(Render render, Mode mode, int n) {
+        boolean top = render == Render.TOP;
+        float limit = vibrancyLimit;
+        if (!mode.isColour()) {
+            int black = Color.BLACK.getRGB();
+            return (p, j, old) -> black;
+        } else if (mode.isIFSColour()) {
+            double w = size.getWidth(), h = size.getHeight();
+            return (p, j, old) -> Color.HSBtoRGB((float) (old.getX() / w), (float) (old.getY() / h), limit);
+        } else if (mode == Mode.GRADIENT) {
+            BufferedImage gradient = config.getGradientImage();
+            return (p, j, old) -> getPixel(gradient, size, old.getX(), old.getY()).getRGB();
+        } else if (mode.isStealing()) {
+            BufferedImage source = config.getSourceImage();
+            return (p, j, old) -> getPixel(source, size, old.getX(), old.getY()).getRGB();
+        } else if (mode.isPalette()) {
+            int[] colours = config.getColours().stream().mapToInt(Color::getRGB).toArray();
+            return top ? (p, j, old) -> colours[this.top[p] % colours.length] : (p, j, old) -> colours[j % colours.length];
+        } else {
+            return top ? (p, j, old) -> Color.HSBtoRGB((float) this.top[p] / (float) n, limit, limit)
+                    : (p, j, old) -> Color.HSBtoRGB((float) j / (float) n, limit, limit);
+        }
+    }
+
+    /**
+     * The plotter for a render and display mode, chosen once for each chunk
+     * of iterations. Package visible for the plotter benchmark.
+     *
+     * @param s the size of the points
+     * @param n the number of functions
+     */
+    Plotter plotter(Graphics2D g, int s, Render render, Mode mode, int n) {
+        Shader shader = shader(render, mode, n);
+        switch (render) {
+            case STANDARD:
+            case IFS:
+                return new Pixels(g, s, shader);
+            case TOP:
+                return new Top(g, s, shader);
+            case MEASURE:
+                return new Measure(g, s, shader);
+            case LOG_DENSITY_BLUR:
+            case LOG_DENSITY_BLUR_INVERSE:
+                return new Blur(mode.isColour() ? shader : null);
+            case DENSITY_POWER:
+            case LOG_DENSITY_POWER:
+            case LOG_DENSITY_POWER_INVERSE:
+                return new Power(mode.isColour() ? shader : null);
+            default:
+                return new Density(mode.isColour() ? shader : null);
+        }
+    }
+
+    /**
+     * Plots points at pixel co-ordinates in the image or histogram.
+     * <p>
+     * Each family of render modes has its own plotter, which only touches
+     * the buffers that family uses, so the loop makes no per-point choices
+     * based on the render or display mode.
+     */
+    abstract class Plotter {
+
+        /**
+         * Plots a point.
+         *
+         * @param j the index of the function that produced the point
+         * @param old the previous point, used by the colour modes
+         */
+        public abstract void plot(int x, int y, int j, Point2D old);
+
+        /** Plots a point that counts as {@code hits} points in the density histogram, and is painted once otherwise. */
+        public void plot(int x, int y, int j, Point2D old, long hits) {
+            plot(x, y, j, old);
+        }
+    }
+
+    /** Paints points into the image, with the gamma and vibrancy adjustments. */
+    private class Pixels extends Plotter {
+
+        protected final Shader shader;
+        private final Graphics2D g;
+        private final Rectangle rect;
+        private final float[] hsb = new float[3];
+        private final double gamma = config.getGamma();
+
+        private Pixels(Graphics2D g, int s, Shader shader) {
+            this.g = g;
+            this.rect = new Rectangle(0, 0, s, s);
+            this.shader = shader;
+        }
+
+        @Override
+        public void plot(int x, int y, int j, Point2D old) {
+            paint(x, y, shader.shade(x + y * size.width, j, old));
+        }
+
+        protected void paint(int x, int y, int argb) {
+            Color.RGBtoHSB((argb >> 16) & 0xff, (argb >> 8) & 0xff, argb & 0xff, hsb);
+            g.setPaint(alpha(Color.HSBtoRGB(hsb[0],
+                    unity().apply(hsb[1] * vibrancy).floatValue() * vibrancyLimit,
+                    unity().apply(Math.pow(hsb[2], gamma) * vibrancy).floatValue() * vibrancyLimit),
+                    octet().apply((int) ((argb >>> 24) * vibrancy))));
+            rect.setLocation(x, y);
+            g.fill(rect);
+        }
+    }
+
+    /** Paints points coloured by the highest function index plotted at each pixel. */
+    private final class Top extends Pixels {
+
+        private Top(Graphics2D g, int s, Shader shader) {
+            super(g, s, shader);
+        }
+
+        @Override
+        public void plot(int x, int y, int j, Point2D old) {
+            int p = x + y * size.width;
+            if (j > top[p]) top[p] = j;
+            paint(x, y, shader.shade(p, j, old));
+        }
+    }
+
+    /** Paints points brightening the previous colour at each pixel. */
+    private final class Measure extends Pixels {
+
+        private final float[] hsb = new float[3];
+
+        private Measure(Graphics2D g, int s, Shader shader) {
+            super(g, s, shader);
+        }
+
+        @Override
+        public void plot(int x, int y, int j, Point2D old) {
+            int p = x + y * size.width;
+            Color color = new Color(shader.shade(p, j, old), true);
+            if (top[p] != 0) {
+                color = new Color(top[p]);
+                Color.RGBtoHSB(color.getRed(), color.getGreen(), color.getBlue(), hsb);
+                if (hsb[2] < 0.5f) {
+                    color = color.brighter();
+                }
+            }
+            top[p] = color.getRGB();
+            paint(x, y, color.getRGB());
+        }
+    }
+
+    /** Counts points in the density histogram, and records their colour if a colour mode is used. */
+    private class Density extends Plotter {
+
+        private final Shader shader;
+
+        private Density(Shader shader) {
+            this.shader = shader;
+        }
+
+        @Override
+        public void plot(int x, int y, int j, Point2D old) {
+            plot(x, y, j, old, 1L);
+        }
+
+        @Override
+        public void plot(int x, int y, int j, Point2D old, long hits) {
+            int p = x + y * size.width;
+            try {
+                density[p] = LongMath.checkedAdd(density[p], hits);
+                count(x, y, p, hits);
+                max = Math.max(max, density[p]);
+                if (seed != null) {
+                    confidence[p] *= SEED_DECAY;
+                }
+            } catch (ArithmeticException ae) { /* ignored */ }
+            if (shader != null) {
+                colour[p] = (double) (shader.shade(p, j, old) & RGB24) / (double) RGB24;
+            }
+        }
+
+        /** Adjusts the histogram for the render mode after counting {@code hits} points. */
+        protected void count(int x, int y, int p, long hits) { }
+    }
+
+    /** Counts points with extra weight, and in the coarse blur histogram. */
+    private final class Blur extends Density {
+
+        private Blur(Shader shader) {
+            super(shader);
+        }
+
+        @Override
+        protected void count(int x, int y, int p, long hits) {
+            density[p] = LongMath.checkedAdd(density[p], LongMath.checkedMultiply(kernel - 1, hits));
+            int q = (x / kernel) + (y / kernel) * (size.width / kernel);
+            blur[q] = LongMath.checkedAdd(blur[q], hits);
+        }
+    }
+
+    /** Counts points with a weight that grows with the density. */
+    private final class Power extends Density {
+
+        private Power(Shader shader) {
+            super(shader);
+        }
+
+        @Override
+        protected void count(int x, int y, int p, long hits) {
+            density[p] = (long) Math.min(((double) density[p]) * Math.pow(1.01d, hits), Long.MAX_VALUE);
+        }
     }
 
     public void plotDensity(BufferedImage targetImage, int r, Render render, Mode mode) {
@@ -326,7 +1365,8 @@ public class Iterator implements Runnable, ThreadFactory {
             for (int x = 0; x < size.width; x++) {
                 for (int y = 0; y < size.height; y++) {
                     int p = x + y * size.width;
-                    double ratio = unity().apply(log ? Math.log(density[p]) / Math.log(max) : (double) density[p] / (double) max);
+                    double d = density(p, density, seed, confidence);
+                    double ratio = unity().apply(log ? Math.log(d) / Math.log(max) : d / (double) max);
                     if (render == Render.LOG_DENSITY_BLUR || render == Render.LOG_DENSITY_BLUR_INVERSE) {
                         int q = (x / kernel) + (y / kernel) * (size.width / kernel);
                         double blurred = unity().apply(Math.log(blur[q]) / Math.log(max)) / kernel;
@@ -340,7 +1380,7 @@ public class Iterator implements Runnable, ThreadFactory {
                             rgb[1] = (color >> 8) & 0xff;
                             rgb[2] = (color >> 0) & 0xff;
                             if (render == Render.LOG_DENSITY_FLAME || render == Render.LOG_DENSITY_FLAME_INVERSE) {
-                                float alpha = (float) (Math.log(density[p]) / density[p]);
+                                float alpha = (float) (Math.log(d) / d);
                                 alpha = (float) Math.pow(invert ? alpha : 1f - alpha, gamma);
                                 rgb[0] *= alpha;
                                 rgb[1] *= alpha;
@@ -395,9 +1435,17 @@ public class Iterator implements Runnable, ThreadFactory {
      */
     @Override
     public void run() {
-        if (config.isIterationsUnlimited() || (count.get() * 1000L) <= config.getIterationsLimit()) {
+        Snapshot functions = snapshot.get();
+        CoordinateTransform function = getCoordinateTransform();
+        if (!config.isIterationsUnlimited() && (count.get() * 1000L) > config.getIterationsLimit()) {
+            token.incrementAndGet();
+        } else if (!isSubdivision(functions, function)) {
             iterate(image.get(), 1, config.getIterations(), scale, centre,
-                    config.getRender(), config.getMode(), transforms, config.getCoordinateTransform());
+                    config.getRender(), config.getMode(), functions, function);
+            version.incrementAndGet();
+        } else if (subdivide(image.get(), 1, config.getIterations(), scale, centre,
+                    config.getRender(), config.getMode(), functions)) {
+            version.incrementAndGet();
         } else {
             token.incrementAndGet();
         }
@@ -451,6 +1499,13 @@ public class Iterator implements Runnable, ThreadFactory {
                 int count = tasks.get(type).size();
                 dump.add(String.format("%s (%d)", CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.LOWER_HYPHEN, type.name()), count));
             }
+            dump.add(String.format("walkers (%d) %d discarded, %d diverged, %d escaped, %d reseeded",
+                    started.get(), discarded.get(), diverged.get(), escaped.get(), reseeded.get()));
+            dump.add(String.format("viewport %.1f%% outside", getOutside() * 100d));
+            Prefixes table = prefixes.get();
+            if (!table.isEmpty()) {
+                dump.add(String.format("prefixes (%d) length %d, %.3g%% visible", table.size(), table.getLength(), table.getVisible() * 100d));
+            }
             Thread[] threads = new Thread[group.activeCount()];
             group.enumerate(threads);
             for (Thread thread : threads) {
@@ -494,7 +1549,9 @@ public class Iterator implements Runnable, ThreadFactory {
                         BufferedImage old = image.get();
                         BufferedImage plot = newImage();
                         plotDensity(plot, 1, config.getRender(), config.getMode());
-                        image.compareAndSet(old, plot);
+                        if (image.compareAndSet(old, plot)) {
+                            version.incrementAndGet();
+                        }
                     });
                 }
                 latch.set(false);
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.view;
+
+import static iterator.Utils.context;
+
+import java.awt.AlphaComposite;
+import java.awt.Dimension;
+import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.swing.SwingUtilities;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.math.LongMath;
+import com.google.common.util.concurrent.Atomics;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import iterator.Explorer;
+import iterator.model.Function;
+import iterator.model.Reflection;
+import iterator.model.Snapshot;
+import iterator.model.Transform;
+import iterator.model.functions.CoordinateTransform;
+import iterator.util.Config;
+import iterator.util.Config.Mode;
+import iterator.util.Config.Render;
+
+/**
+ * Progressive IFS preview for the {@link Editor}.
+ * <p>
+ * The preview is rendered by a private {@link Iterator} on a single background
+ * thread. Each update compiles a {@link Snapshot} of the functions being
+ * edited and starts a new generation, which cancels any preview still being
+ * rendered. Points are
+ * accumulated into a working image for the configured time budget, and the
+ * result is copied to a spare buffer and handed to the EDT, so the image is
+ * refined progressively without blocking the UI.
+ */
+public class Preview {
+
+    /** Number of points iterated between checks for cancellation and the time budget. */
+    public static final long CHUNK = 10_000L;
+
+    private final Explorer controller;
+    private final Config config;
+    private final Iterator iterator;
+    private final Runnable repaint;
+    private final ExecutorService worker;
+    private final AtomicLong generation = new AtomicLong(0L);
+    private final AtomicReference<BufferedImage> spare = Atomics.newReference();
+
+    private HashCode signature;
+    private boolean draft;
+    private Dimension size = new Dimension();
+    private BufferedImage working, standby, image;
+
+    public Preview(Explorer controller, Runnable repaint) {
+        this.controller = controller;
+        this.config = controller.getConfig();
+        this.repaint = repaint;
+        this.iterator = new Iterator(controller, config, size);
+        this.worker = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("preview")
+                .setDaemon(true)
+                .build());
+    }
+
+    /** The most recently published image, for use on the EDT only. */
+    public BufferedImage getImage() { return image; }
+
+    /**
+     * Sets draft mode, used while the IFS is being dragged.
+     * <p>
+     * Draft previews plot fewer, larger points, reducing the number of
+     * iterations by the square of the configured draft factor.
+     */
+    public void setDraft(boolean draft) { this.draft = draft; }
+
+    public boolean isDraft() { return draft; }
+
+    /**
+     * Starts rendering a new preview if the functions have changed.
+     * <p>
+     * Must be called on the EDT, with the functions that are being edited.
+     */
+    public void update(List<Transform> transforms, List<Reflection> reflections, Dimension size) {
+        if (size.width <= 0 || size.height <= 0) return;
+
+        Mode mode = config.getMode();
+        CoordinateTransform.Type type = config.getCoordinateTransformType();
+        int factor = draft ? config.getPreviewDraft() : 1;
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        Viewport.hash(hasher, transforms);
+        Viewport.hash(hasher, reflections);
+        config.getRenderSettings().forEach((key, value) -> hasher.putString(key, Charsets.UTF_8).putString(value, Charsets.UTF_8));
+        HashCode updated = hasher.putInt(size.width)
+                .putInt(size.height)
+                .putInt(factor)
+                .hash();
+        if (updated.equals(signature)) return;
+        signature = updated;
+
+        // Compile the functions, since they are modified on the EDT while editing
+        Snapshot functions = Snapshot.of(ImmutableList.<Function>builder()
+                .addAll(transforms)
+                .addAll(reflections)
+                .build(), config.getSymmetry(), type == CoordinateTransform.Type.IDENTITY);
+
+        // Limit points to between 50K and 1M with saturating arithmetic, as the exponent can be large
+        long n = transforms.size();
+        long m = reflections.size() + 1;
+        long k = Math.min(1_000_000L, LongMath.saturatedMultiply(50_000L, LongMath.saturatedPow(2L, (int) Math.min(n * m, Integer.MAX_VALUE))));
+        k *= (type == CoordinateTransform.Type.IDENTITY ? 1 : 2);
+        k = Math.max(CHUNK, k / (factor * factor));
+
+        long token = generation.incrementAndGet();
+        render(token, functions, new Dimension(size), k, 2 * factor, mode);
+    }
+
+    /** Cancels the current preview and clears the image. */
+    public void reset() {
+        generation.incrementAndGet();
+        signature = null;
+        if (image != null) {
+            spare.compareAndSet(null, image);
+            image = null;
+        }
+    }
+
+    private void render(long token, Snapshot functions, Dimension size, long k, int s, Mode mode) {
+        worker.submit(() -> {
+            if (token != generation.get()) return;
+
+            try {
+                if (!size.equals(this.size)) {
+                    this.size = size;
+                    working = newImage(size);
+                    standby = newImage(size);
+                    spare.set(newImage(size));
+                } else {
+                    clear(working);
+                }
+                iterator.reset(size);
+                Function transform = iterator.getCoordinateTransform();
+
+                Point2D centre = new Point2D.Double(size.getWidth() / 2d, size.getHeight() / 2d);
+                long budget = TimeUnit.MILLISECONDS.toNanos(config.getPreviewBudget());
+                long total = 0L;
+                while (total < k && token == generation.get()) {
+                    long deadline = System.nanoTime() + budget;
+                    do {
+                        long chunk = Math.min(CHUNK, k - total);
+                        iterator.iterate(working, s, chunk, 1.0f, centre, Render.STANDARD, mode, functions, transform);
+                        total += chunk;
+                    } while (total < k && token == generation.get() && System.nanoTime() < deadline);
+
+                    publish(token, size, total >= k);
+                }
+            } catch (RuntimeException e) {
+                controller.accept(e, "Preview failed");
+            }
+        });
+    }
+
+    /**
+     * Copies the working image into the spare buffer and swaps it with the
+     * displayed image on the EDT. If the EDT has not yet taken the previous
+     * frame there is no spare buffer, and this refinement is skipped unless
+     * it is the final frame.
+     */
+    private void publish(long token, Dimension size, boolean last) {
+        BufferedImage frame = spare.getAndSet(null);
+        if (frame == null) {
+            frame = standby;
+            standby = null;
+        }
+        if (frame == null && !last) return;
+        if (frame == null || frame.getWidth() != size.width || frame.getHeight() != size.height) {
+            frame = newImage(size);
+        }
+
+        context(controller, frame.getGraphics(), g -> {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(working, 0, 0, null);
+        });
+
+        BufferedImage published = frame;
+        SwingUtilities.invokeLater(() -> {
+            BufferedImage previous = image;
+            if (token == generation.get()) {
+                image = published;
+                repaint.run();
+            } else {
+                previous = published;
+            }
+            if (previous != null && previous.getWidth() == size.width && previous.getHeight() == size.height) {
+                spare.compareAndSet(null, previous);
+            }
+        });
+    }
+
+    private BufferedImage newImage(Dimension size) {
+        BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        clear(image);
+        return image;
+    }
+
+    private void clear(BufferedImage image) {
+        context(controller, image.getGraphics(), g -> {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        });
+    }
+
+}
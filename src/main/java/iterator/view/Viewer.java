@@ -24,6 +24,7 @@ import static iterator.Utils.calibri;
 import static iterator.Utils.checkBoxItem;
 import static iterator.Utils.context;
 import static iterator.Utils.menuItem;
+import static iterator.util.Messages.MENU_VIEWER_FIT;
 import static iterator.util.Messages.MENU_VIEWER_GRID;
 import static iterator.util.Messages.MENU_VIEWER_INFO;
 import static iterator.util.Messages.MENU_VIEWER_OVERLAY;
@@ -36,11 +37,13 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Shape;
 import java.awt.Toolkit;
+import java.awt.Transparency;
 import java.awt.datatransfer.Clipboard;
 import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.Transferable;
@@ -55,10 +58,12 @@ import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Path2D;
 import java.awt.geom.Point2D;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.awt.print.PageFormat;
 import java.awt.print.Printable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
 
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenuItem;
@@ -68,6 +73,9 @@ import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import javax.swing.event.MouseInputListener;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.math.DoubleMath;
 
@@ -102,6 +110,10 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
     private Zoom properties;
     private JCheckBoxMenuItem showGrid, showOverlay, showInfo;
     private JMenuItem pause, resume;
+    private Cache<Viewport, Iterator.State> cache;
+    private BufferedImage overlayLayer, gridLayer;
+    private volatile long painted = -1L;
+    private Deque<Viewport> back = new ArrayDeque<>(), forward = new ArrayDeque<>();
 
     public Viewer(Explorer controller) {
         super();
@@ -118,9 +130,16 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
 
         size = getSize();
 
+        cache = CacheBuilder.newBuilder()
+                .maximumWeight(config.getCacheSize() * 1024L)
+                .weigher((Viewport k, Iterator.State v) -> (int) Math.min(v.getBytes() / 1024L, Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+
         properties = Zoom.dialog(controller);
         viewer = new JPopupMenu();
         viewer.add(menuItem(messages.getText(MENU_VIEWER_ZOOM), e -> Dialog.show(properties, controller)));
+        viewer.add(menuItem(messages.getText(MENU_VIEWER_FIT), e -> fit()));
         pause = menuItem(messages.getText(MENU_VIEWER_PAUSE), e -> stop());
         viewer.add(pause);
         resume = menuItem(messages.getText(MENU_VIEWER_RESUME), e -> start());
@@ -146,9 +165,9 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
 
     /** @see Subscriber#updated(IFS) */
     @Override
-    @Subscribe
     public void updated(IFS ifs) {
         this.ifs = ifs;
+        invalidateLayers();
         if (!iterator.isRunning()) {
             setOverlay(config.isDebug());
             setInfo(config.isDebug());
@@ -165,7 +184,7 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
         stop();
         this.size = size;
         rescale();
-        reset();
+        reproject();
         if (isVisible()) {
             start();
         }
@@ -180,8 +199,9 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
             g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
             g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
 
+            painted = iterator.getVersion();
             if (getImage() != null) {
-                g.drawImage(getImage(), new AffineTransformOp(new AffineTransform(), AffineTransformOp.TYPE_BILINEAR), 0, 0);
+                g.drawImage(getImage(), 0, 0, null);
             }
 
             if (zoom != null) {
@@ -191,12 +211,17 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
             }
 
             if (overlay) {
-                for (Transform t : ifs.getTransforms()) {
-                    paintTransform(t, g);
-                }
-                for (Reflection r : ifs.getReflections()) {
-                    paintReflection(r, g);
+                if (overlayLayer == null) {
+                    overlayLayer = newLayer(l -> {
+                        for (Transform t : ifs.getTransforms()) {
+                            paintTransform(t, l);
+                        }
+                        for (Reflection r : ifs.getReflections()) {
+                            paintReflection(r, l);
+                        }
+                    });
                 }
+                g.drawImage(overlayLayer, 0, 0, null);
             }
 
             if (info) {
@@ -212,11 +237,36 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
             }
 
             if (grid) {
-                paintGrid(g);
+                if (gridLayer == null) {
+                    gridLayer = newLayer(this::paintGrid);
+                }
+                g.drawImage(gridLayer, 0, 0, null);
             }
         });
     }
 
+    /**
+     * Creates a transparent image the size of the viewer, compatible with
+     * the display so that it can be cached in video memory.
+     */
+    private BufferedImage newLayer(Consumer<Graphics2D> painter) {
+        int w = Math.max(1, size.width), h = Math.max(1, size.height);
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        BufferedImage layer = gc != null ? gc.createCompatibleImage(w, h, Transparency.TRANSLUCENT) : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        context(controller, layer.getGraphics(), g -> {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            painter.accept(g);
+        });
+        return layer;
+    }
+
+    /** Discards the cached overlay and grid layers and repaints. */
+    public void invalidateLayers() {
+        overlayLayer = null;
+        gridLayer = null;
+        repaint();
+    }
+
     public void paintTransform(Transform t, Graphics2D graphics) {
         context(controller, graphics, g -> {
             // Transform unit square to view space
@@ -323,6 +373,7 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
     public void rescale() {
         scale = config.getDisplayScale();
         centre = new Point2D.Double(config.getDisplayCentreX() * size.getWidth(), config.getDisplayCentreY() * size.getHeight());
+        invalidateLayers();
     }
 
     public void resetScale() {
@@ -339,6 +390,108 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
         iterator.reset(size);
     }
 
+    /**
+     * Resets the iterator for the current scale and centre, keeping
+     * the existing histogram as a low-detail starting point.
+     */
+    public void reproject() {
+        if (size.getWidth() <= 0 && size.getHeight() <= 0) return;
+
+        iterator.reproject(size);
+    }
+
+    /**
+     * Zooms to a new scale and centre, recording the current viewport in the history.
+     *
+     * @see #back()
+     * @see #forward()
+     */
+    public void zoom(float scale, double x, double y) {
+        stop();
+        Viewport current = save();
+        if (current != null) {
+            back.push(current);
+            forward.clear();
+        }
+        show(scale, x, y);
+        start();
+    }
+
+    /** Zooms to fit the estimated bounds of the attractor. */
+    public void fit() {
+        iterator.getBounds().ifPresent(bounds -> {
+            zoom(iterator.getFitScale(bounds), bounds.getCenterX() / size.getWidth(), bounds.getCenterY() / size.getHeight());
+
+            if (config.isDebug()) {
+                out.debug("Fit: %.1fx scale, centre (%.1f, %.1f) for bounds %.1fx%.1f",
+                        scale, centre.getX(), centre.getY(), bounds.getWidth(), bounds.getHeight());
+            }
+        });
+    }
+
+    /** Returns to the previous viewport in the history. */
+    public void back() {
+        if (back.isEmpty()) return;
+
+        stop();
+        Viewport current = save();
+        if (current != null) {
+            forward.push(current);
+        }
+        Viewport previous = back.pop();
+        show(previous.getScale(), previous.getCentreX(), previous.getCentreY());
+        start();
+    }
+
+    /** Returns to the next viewport in the history. */
+    public void forward() {
+        if (forward.isEmpty()) return;
+
+        stop();
+        Viewport current = save();
+        if (current != null) {
+            back.push(current);
+        }
+        Viewport next = forward.pop();
+        show(next.getScale(), next.getCentreX(), next.getCentreY());
+        start();
+    }
+
+    /** Saves the current iterator state in the cache. */
+    private Viewport save() {
+        if (ifs == null || (size.getWidth() <= 0 && size.getHeight() <= 0)) return null;
+
+        Viewport current = Viewport.of(ifs, config, size);
+        if (iterator.getCount() > 0) {
+            cache.put(current, iterator.snapshot());
+        }
+        return current;
+    }
+
+    /** Restores a viewport from the cache, or reprojects the current state if missing. */
+    private void show(float scale, double x, double y) {
+        config.setDisplayScale(scale);
+        config.setDisplayCentreX(x);
+        config.setDisplayCentreY(y);
+        rescale();
+
+        Viewport target = Viewport.of(ifs, config, size);
+        Iterator.State state = cache.getIfPresent(target);
+        if (state != null) {
+            cache.invalidate(target); // Iterator now owns the state
+            iterator.restore(state);
+        } else {
+            reproject();
+        }
+
+        if (config.isDebug()) {
+            CacheStats stats = cache.stats();
+            long bytes = cache.asMap().values().stream().mapToLong(Iterator.State::getBytes).sum();
+            out.debug("Cache: %d hits, %d misses, %d entries, %.1f MiB",
+                    stats.hitCount(), stats.missCount(), cache.size(), bytes / (1024d * 1024d));
+        }
+    }
+
     public String getInfoText() {
         String info = String.format("%s [%s/%d]",
                 iterator.getInfo(), iterator.getTaskSet().isEmpty() ? "-" : Integer.toString(iterator.getTaskSet().size()), config.getThreads());
@@ -376,7 +529,7 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
      */
     @Override
     public void actionPerformed(ActionEvent e) {
-        if (isVisible()) {
+        if (isVisible() && iterator.getVersion() != painted) {
             repaint();
         }
     }
@@ -424,22 +577,23 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
                     }
                     break;
                 case KeyEvent.VK_MINUS:
-                    stop();
-                    config.setDisplayScale(scale / 2f);
-                    rescale();
-                    reset();
-                    start();
+                    zoom(scale / 2f, config.getDisplayCentreX(), config.getDisplayCentreY());
                     break;
                 case KeyEvent.VK_EQUALS:
-                    stop();
                     if (e.isShiftDown()) {
-                        config.setDisplayScale(scale * 2f);
-                        rescale();
+                        zoom(scale * 2f, config.getDisplayCentreX(), config.getDisplayCentreY());
                     } else {
-                        resetScale();
+                        zoom(Config.DEFAULT_DISPLAY_SCALE, Config.DEFAULT_DISPLAY_CENTRE_X, Config.DEFAULT_DISPLAY_CENTRE_Y);
                     }
-                    reset();
-                    start();
+                    break;
+                case KeyEvent.VK_F:
+                    fit();
+                    break;
+                case KeyEvent.VK_LEFT:
+                    back();
+                    break;
+                case KeyEvent.VK_RIGHT:
+                    forward();
                     break;
                 case KeyEvent.VK_I:
                     setInfo(!info);
@@ -485,13 +639,13 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
     private void setOverlay(boolean state) {
         overlay = state;
         showOverlay.setSelected(state);
-        repaint();
+        invalidateLayers();
     }
 
     private void setGrid(boolean state) {
         grid = state;
         showGrid.setSelected(state);
-        repaint();
+        invalidateLayers();
     }
 
     /** @see java.awt.event.MouseListener#mousePressed(java.awt.event.MouseEvent) */
@@ -525,19 +679,11 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
     public void mouseReleased(MouseEvent e) {
         if (notContextMenu(e) && SwingUtilities.isLeftMouseButton(e)) {
             if (zoom != null) {
-                stop();
-
                 // Calculate new centre point and scale
                 Point2D origin = new Point2D.Double((centre.getX() * scale) - (size.getWidth() / 2d), (centre.getY() * scale) - (size.getHeight() / 2d));
                 Point2D updated = new Point2D.Double((zoom.x + (zoom.width / 2d) + origin.getX()) / scale, (zoom.y + (zoom.height / 2d) + origin.getY()) / scale);
-                if (zoom.width == 0) {
-                    config.setDisplayScale(scale * 2f);
-                } else {
-                    config.setDisplayScale(scale * ((float) size.getWidth() / (float) zoom.width));
-                }
-                config.setDisplayCentreX(updated.getX() / size.getWidth());
-                config.setDisplayCentreY(updated.getY() / size.getHeight());
-                rescale();
+                float factor = zoom.width == 0 ? 2f : (float) size.getWidth() / (float) zoom.width;
+                zoom(scale * factor, updated.getX() / size.getWidth(), updated.getY() / size.getHeight());
 
                 if (config.isDebug()) {
                     out.debug("Zoom: %.1fx scale, centre (%.1f, %.1f) via click at (%d, %d)",
@@ -545,8 +691,6 @@ public class Viewer extends JPanel implements ActionListener, KeyListener, Mouse
                 }
 
                 zoom = null;
-                reset();
-                start();
             }
         }
     }
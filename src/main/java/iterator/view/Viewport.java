@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012-2017 by Andrew Kennedy.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package iterator.view;
+
+import java.awt.Dimension;
+import java.awt.geom.AffineTransform;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import iterator.model.Function;
+import iterator.model.IFS;
+import iterator.model.Transform;
+import iterator.util.Config;
+
+/**
+ * Identifies a rendered view of an IFS.
+ * <p>
+ * The key combines a hash of the IFS contents and the configuration
+ * {@link Config#getRenderSettings() settings} that affect the rendered image
+ * with the display size, scale and centre. Two viewports are equal if their rendered images would be the same.
+ */
+public final class Viewport {
+
+    private final HashCode hash;
+    private final Dimension size;
+    private final float scale;
+    private final double x, y;
+
+    private Viewport(HashCode hash, Dimension size, float scale, double x, double y) {
+        this.hash = hash;
+        this.size = size;
+        this.scale = scale;
+        this.x = x;
+        this.y = y;
+    }
+
+    public static Viewport of(IFS ifs, Config config, Dimension size) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hash(hasher, ifs);
+        config.getRenderSettings().forEach((key, value) -> hasher.putString(key, Charsets.UTF_8).putString(value, Charsets.UTF_8));
+
+        return new Viewport(hasher.hash(), new Dimension(size),
+                config.getDisplayScale(), config.getDisplayCentreX(), config.getDisplayCentreY());
+    }
+
+    /** Adds the contents of a list of functions to a hash. */
+    public static Hasher hash(Hasher hasher, Iterable<? extends Function> functions) {
+        double[] matrix = new double[6];
+        for (Function function : functions) {
+            hasher.putString(function.getClass().getName(), Charsets.UTF_8)
+                    .putInt(function.getId());
+            AffineTransform transform = function.getTransform();
+            transform.getMatrix(matrix);
+            for (double value : matrix) {
+                hasher.putDouble(value);
+            }
+            if (function instanceof Transform) {
+                hasher.putDouble(((Transform) function).getWeight());
+            }
+        }
+        return hasher;
+    }
+
+    public float getScale() { return scale; }
+
+    public double getCentreX() { return x; }
+
+    public double getCentreY() { return y; }
+
+    public Dimension getSize() { return size; }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hash, size, scale, x, y);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Viewport)) return false;
+        Viewport that = (Viewport) object;
+        return Objects.equal(hash, that.hash)
+                && Objects.equal(size, that.size)
+                && scale == that.scale
+                && x == that.x
+                && y == that.y;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("hash", hash)
+                .add("size", String.format("%dx%d", size.width, size.height))
+                .add("scale", scale)
+                .add("x", x)
+                .add("y", y)
+                .toString();
+    }
+
+}